@@ -2,6 +2,9 @@ package com.laamella.javacfa;
 
 import io.vavr.collection.List;
 
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public class CompilationUnitFlows {
     private final List<Flow> constructorFlows;
     private final List<Flow> methodFlows;
@@ -18,4 +21,30 @@ public class CompilationUnitFlows {
     public List<Flow> getMethodFlows() {
         return methodFlows;
     }
+
+    /**
+     * @return all flows of all constructors and methods, constructors first.
+     * The stream is sized and splits evenly, also inside big methods, so it can be made parallel.
+     */
+    public Stream<Flow> stream() {
+        return flows(List.of(this), false);
+    }
+
+    /**
+     * @return all flows of all constructors and methods, for processing on several threads.
+     */
+    public Stream<Flow> parallelStream() {
+        return flows(List.of(this), true);
+    }
+
+    /**
+     * @return all flows of all constructors and methods in a batch of compilation units, in order.
+     */
+    public static Stream<Flow> flows(Iterable<CompilationUnitFlows> batch, boolean parallel) {
+        List<FlowIndex> indexes = List.ofAll(batch)
+                .flatMap(flows -> flows.constructorFlows.appendAll(flows.methodFlows))
+                .filter(start -> start != null)
+                .map(FlowIndex::of);
+        return StreamSupport.stream(new FlowSpliterator(indexes.toJavaArray(FlowIndex[]::new)), parallel);
+    }
 }
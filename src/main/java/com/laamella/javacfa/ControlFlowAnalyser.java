@@ -2,34 +2,141 @@ package com.laamella.javacfa;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
+import com.github.javaparser.ast.expr.EnclosedExpr;
+import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.nodeTypes.NodeWithStatements;
 import com.github.javaparser.ast.stmt.*;
 import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.resolution.types.ResolvedType;
-import io.vavr.Tuple;
-import io.vavr.Tuple2;
-import io.vavr.collection.HashMap;
 import io.vavr.collection.List;
-import io.vavr.collection.Map;
-import io.vavr.control.Option;
 
-import static com.laamella.javacfa.Flow.ForwardDeclaredFlow;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
 import static com.laamella.javacfa.Flow.Type.*;
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
 
 public class ControlFlowAnalyser {
+    /**
+     * Changes whenever the analyser can produce different flows for the same code,
+     * so that stored results can be recognized as outdated.
+     */
+    public static final String VERSION = "1";
+
+    // What a placeholder stands for while its labeled statement or try statement is being analysed.
+    private static final int UNRESOLVED = Integer.MIN_VALUE;
+    // The patch list entry for a flow that folding cut off, which is only known when its placeholder is resolved.
+    // It is compared by identity, so it can not be mistaken for an error message.
+    private static final String CUT_OFF = new String("cut off");
+    static final String NOT_ANALYSED = "Not analysed, because the analysis budget was exceeded.";
+
+    private ThrowResolution throwResolution = ThrowResolution.SYMBOL_SOLVER;
+    private int maxFlows = Integer.MAX_VALUE;
+    private long maxMillis = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private boolean foldConstantConditions = false;
+
+    /**
+     * Chooses how throw statements are matched to catch clauses.
+     * The default is {@link ThrowResolution#SYMBOL_SOLVER}.
+     */
+    public ControlFlowAnalyser setThrowResolution(ThrowResolution throwResolution) {
+        this.throwResolution = requireNonNull(throwResolution);
+        return this;
+    }
+
+    public ThrowResolution getThrowResolution() {
+        return throwResolution;
+    }
+
+    /**
+     * Limits the amount of flows created for one method.
+     * When it is reached, the remaining statements become single STEP flows,
+     * and the start flow gets an error.
+     * The default is no limit.
+     */
+    public ControlFlowAnalyser setMaxFlows(int maxFlows) {
+        this.maxFlows = maxFlows;
+        return this;
+    }
+
+    public int getMaxFlows() {
+        return maxFlows;
+    }
+
+    /**
+     * Limits the time spent on one method, like setMaxFlows.
+     * The default is no limit.
+     */
+    public ControlFlowAnalyser setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+        return this;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * @return whether the time budget stopped the analysis of the graph starting at start.
+     * Where that happens depends on the machine and how busy it is, so analysing the same code again can give a different graph.
+     */
+    public boolean isOutOfTime(Flow start) {
+        return start != null && start.getErrors().contains(outOfTime());
+    }
+
+    private String outOfTime() {
+        return "Analysis stopped after " + maxMillis + " ms.";
+    }
+
+    /**
+     * Limits how deep statements are followed into nested statements, counting every statement and block as a level.
+     * Statements that are nested deeper become single STEP flows, and the start flow gets an error.
+     * The default is no limit.
+     */
+    public ControlFlowAnalyser setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Makes if, while, do and for statements with the literal true or false as condition, or for statements without one,
+     * into STEP flows that only go where the condition sends them.
+     * Like the CHOICE they replace, those flows stand for the condition, and have it as their condition.
+     * Statements that can't be reached because of that are reported as errors on the start flow.
+     * The default is false: every condition is a CHOICE.
+     */
+    public ControlFlowAnalyser setFoldConstantConditions(boolean foldConstantConditions) {
+        this.foldConstantConditions = foldConstantConditions;
+        return this;
+    }
+
+    public boolean isFoldConstantConditions() {
+        return foldConstantConditions;
+    }
+
     /**
      * @return a list of all possible flows in this compilation unit.
      */
     public CompilationUnitFlows analyse(CompilationUnit compilationUnit) {
+        SyntacticThrowMatcher throwMatcher = new SyntacticThrowMatcher(compilationUnit);
         return new CompilationUnitFlows(
                 compilationUnit.findAll(ConstructorDeclaration.class).stream()
-                        .map(this::analyse)
+                        .map(constructor -> analyse(constructor, throwMatcher))
                         .collect(List.collector()),
                 compilationUnit.findAll(MethodDeclaration.class).stream()
-                        .map(this::analyse)
+                        .map(method -> analyse(method, throwMatcher))
                         .collect(List.collector()));
     }
 
@@ -40,196 +147,776 @@ public class ControlFlowAnalyser {
      * @return the control flow graph start node.
      */
     public Flow analyse(Node node) {
-        Flow startNode = new Flow(node, START, null);
-        Flow flow = analyse(node, null, HashMap.empty(), null, null, HashMap.empty(), null, List.empty());
-        if (flow == null) {
-            return null;
+        return analyse(node, (SyntacticThrowMatcher) null);
+    }
+
+    private Flow analyse(Node node, SyntacticThrowMatcher throwMatcher) {
+        FlowGraphSink sink = new FlowGraphSink();
+        analyse(node, sink, throwMatcher);
+        return sink.getStart();
+    }
+
+    /**
+     * Analyse the control flow in a piece of code, sending the graph to a sink instead of building it.
+     *
+     * @param node the node to analyse, probably a {@link MethodDeclaration}.
+     */
+    public void analyse(Node node, FlowSink sink) {
+        analyse(node, sink, null);
+    }
+
+    private void analyse(Node node, FlowSink sink, SyntacticThrowMatcher throwMatcher) {
+        sink.begin(node);
+        Analysis analysis = new Analysis(sink, throwMatcher);
+        int flow = analysis.analyse(node, NONE);
+        if (flow == NONE) {
+            sink.end(NONE);
+            return;
         }
-        startNode.setNext(flow);
-        removeIndirections(startNode);
-        return startNode;
+        int start = analysis.flow(node, START, flow);
+        analysis.reportBudget(start);
+        analysis.reportUnreachable(start);
+        sink.end(start);
     }
 
     /**
-     * The analyser uses forward declared flow nodes so that a flow can
-     * refer to following flows without analysing them already.
+     * Updates a graph after a part of the analysed code was edited,
+     * by analysing only the smallest statement around the edit that the rest of the graph enters and leaves in one place,
+     * and splicing its new flows into the graph.
+     * When there is no such statement, or when constant conditions are folded or there is a budget,
+     * all the code is analysed again.
      * <p>
-     * The forward declared flows are set to an actual flow with an indirection
-     * trick. The problem is that the graph now has the same flow as two or
-     * more object instances in the tree, which will give trouble when comparing
-     * flows.
+     * A splice changes the flows of the graph in place, so a ReachabilityIndex, Frequencies, DefUseChains or FlowIndex
+     * that was made for the graph before does not describe it anymore, and has to be made again.
+     *
+     * @param start   the start flow of the graph, made by this analyser before the edit.
+     * @param changed the statement, block or expression that was edited in place, or that contains the nodes that were replaced.
+     *                It must still be part of the analysed code.
+     * @return start, updated and indexed again, or a new start flow when all the code was analysed again.
+     */
+    public Flow reanalyse(Flow start, Node changed) {
+        return new RegionSplicer(this, start).reanalyse(changed);
+    }
+
+    /**
+     * Analyses one statement of a graph on its own.
+     *
+     * @param exit the existing flow that the statement continues with, or null when it ends the graph.
+     * @return the first new flow, which is exit when the statement has no flow.
+     */
+    Flow analyseRegion(Statement region, Flow exit) {
+        FlowGraphSink sink = new FlowGraphSink();
+        sink.begin(region);
+        Analysis analysis = new Analysis(sink, null);
+        int next = NONE;
+        if (exit != null) {
+            next = analysis.flowCount++;
+            sink.adopt(next, exit);
+        }
+        int flow = analysis.analyse(region, next);
+        Flow entry = flow == NONE ? null : sink.get(flow);
+        sink.end(NONE);
+        return entry;
+    }
+
+    /**
+     * The state of analysing one piece of code.
+     * <p>
+     * Flows are ints: the numbers that the sink knows them by.
+     * The flow of a labeled statement is needed by continue statements in it before it exists,
+     * so while the statement is analysed it is represented by a placeholder: a number below NONE.
+     * Edges and errors for the placeholder wait in a patch list,
+     * which is sent to the sink as soon as the labeled statement is done,
+     * so the sink only ever sees final targets.
+     * The copies of a finally block for the jumps out of its try statement are placeholders too,
+     * so only the copies that something jumps to are analysed, and the sink only sees flows that can be in the graph.
      * <p>
-     * Here we replace all indirections before returning the flow graph to the user.
+     * The context of the statement being analysed is kept in fields and arrays that are used as stacks:
+     * nested statements change them, and restore them when they are done.
+     * That way, analysing a statement doesn't allocate anything besides what the sink does.
+     * <p>
+     * When constant conditions are folded, the edges are remembered too,
+     * so the flows that folding cut off can be checked for reachability at the end.
      */
-    private void removeIndirections(Flow startNode) {
-        new Visitor(startNode).visit(flow -> {
-            while (flow.getNext() instanceof ForwardDeclaredFlow) {
-                flow.setNext(((ForwardDeclaredFlow) flow.getNext()).getIndirection());
-            }
-            while (flow.getMayBranchTo() instanceof ForwardDeclaredFlow) {
-                flow.setMayBranchTo(((ForwardDeclaredFlow) flow.getMayBranchTo()).getIndirection());
-            }
-        });
-    }
-
-    private Flow analyse(
-            Node node,
-            Flow back,
-            Map<String, Flow> continueLabels,
-            Flow next,
-            Flow breakTo,
-            Map<String, Flow> breakLabels,
-            Flow returnFlow,
-            List<Tuple2<Type, Flow>> catchClausesByCatchType) {
-        if (node instanceof MethodDeclaration) {
-            return ((MethodDeclaration) node).getBody()
-                    .map(body -> analyse(body, back, continueLabels, next, next, breakLabels, returnFlow, catchClausesByCatchType))
-                    .orElse(null);
-        } else if (node instanceof ConstructorDeclaration) {
-            return analyse(((ConstructorDeclaration) node).getBody(), back, continueLabels, next, next, breakLabels, returnFlow, catchClausesByCatchType);
-        } else if (node instanceof NodeWithStatements) {
-            return List.ofAll(((NodeWithStatements<?>) node).getStatements())
-                    .foldRight(next, (currentStmt, nextFlow) -> analyse(currentStmt, back, continueLabels, nextFlow, breakTo, breakLabels, returnFlow, catchClausesByCatchType));
-        } else if (node instanceof SwitchStmt) {
-            return analyseSwitchStmt((SwitchStmt) node, back, continueLabels, next, breakLabels, returnFlow, catchClausesByCatchType);
-        } else if (node instanceof EmptyStmt) {
+    private class Analysis {
+        private final FlowSink sink;
+        // Where continue, break and return statements go.
+        private int back = NONE;
+        private int breakTo = NONE;
+        private int returnFlow = NONE;
+        // The labels around the statement, innermost last.
+        private String[] labels = new String[4];
+        private int[] continueTargets = new int[4];
+        private int[] breakTargets = new int[4];
+        private int labelCount = 0;
+        // The catch clauses around the statement, innermost last.
+        private Type[] catchTypes = new Type[4];
+        private int[] catchFlows = new int[4];
+        private int catchCount = 0;
+        // Flows that have to wait until nested statements are analysed.
+        private int[] saved = new int[16];
+        private int savedCount = 0;
+        // What placeholder -2 - i stands for, for the labeled statements and finally blocks being analysed, innermost last.
+        private int[] placeholderTargets = new int[4];
+        private int placeholderCount = 0;
+        // The patch list: edges, errors and cut off flows for placeholders.
+        private int[] pendingFlows = new int[4];
+        private int[] pendingPlaceholders = new int[4];
+        private String[] pendingErrors = new String[4];
+        private int pendingCount = 0;
+        // The edges of every flow, and the flows that folding took an edge to away, with the folded flow, when folding.
+        private int[] nextEdges = new int[0];
+        private int[] mayBranchToEdges = new int[0];
+        private int[] cutOff = new int[4];
+        private int[] cutOffBy = new int[4];
+        private int cutOffCount = 0;
+        private Node[] nodes = new Node[0];
+
+        // Made for the first throw statement when it wasn't given, and used for all of them.
+        private SyntacticThrowMatcher throwMatcher;
+
+        private final long deadline;
+        private int flowCount = 0;
+        private int depth = 0;
+        private boolean depthExceeded = false;
+        private String stopReason = null;
+
+        Analysis(FlowSink sink, SyntacticThrowMatcher throwMatcher) {
+            this.sink = sink;
+            this.throwMatcher = throwMatcher;
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        }
+
+        private int flow(Node node, Flow.Type type, int next) {
+            int flow = flowCount++;
+            sink.flow(flow, node, type);
+            if (foldConstantConditions) {
+                if (flow >= nodes.length) {
+                    int length = Math.max(16, flow * 2);
+                    nodes = Arrays.copyOf(nodes, length);
+                    nextEdges = Arrays.copyOf(nextEdges, length);
+                    mayBranchToEdges = Arrays.copyOf(mayBranchToEdges, length);
+                }
+                nodes[flow] = node;
+                nextEdges[flow] = NONE;
+                mayBranchToEdges[flow] = NONE;
+            }
+            setNext(flow, next);
+            return flow;
+        }
+
+        private void setNext(int flow, int next) {
+            if (next >= 0) {
+                sendNext(flow, next);
+            } else if (next != NONE) {
+                pend(flow, next, null);
+            }
+        }
+
+        private void setMayBranchTo(int flow, int mayBranchTo) {
+            if (mayBranchTo >= 0) {
+                sendMayBranchTo(flow, mayBranchTo);
+            } else if (mayBranchTo != NONE) {
+                pend(flow, mayBranchTo, "");
+            }
+        }
+
+        private void sendNext(int flow, int next) {
+            sink.next(flow, next);
+            if (foldConstantConditions) {
+                nextEdges[flow] = next;
+            }
+        }
+
+        private void sendMayBranchTo(int flow, int mayBranchTo) {
+            sink.mayBranchTo(flow, mayBranchTo);
+            if (foldConstantConditions) {
+                mayBranchToEdges[flow] = mayBranchTo;
+            }
+        }
+
+        private int addError(int flow, String message) {
+            if (flow >= 0) {
+                sink.error(flow, message);
+            } else if (flow != NONE) {
+                pend(NONE, flow, message);
+            }
+            return flow;
+        }
+
+        /**
+         * Remembers an edge or error for a placeholder.
+         * The error is null for a next edge, empty for a mayBranchTo edge, and CUT_OFF for a flow that folding cut off.
+         */
+        private void pend(int flow, int placeholder, String error) {
+            if (pendingCount == pendingFlows.length) {
+                pendingFlows = Arrays.copyOf(pendingFlows, pendingCount * 2);
+                pendingPlaceholders = Arrays.copyOf(pendingPlaceholders, pendingCount * 2);
+                pendingErrors = Arrays.copyOf(pendingErrors, pendingCount * 2);
+            }
+            pendingFlows[pendingCount] = flow;
+            pendingPlaceholders[pendingCount] = placeholder;
+            pendingErrors[pendingCount++] = error;
+        }
+
+        private int newPlaceholder() {
+            if (placeholderCount == placeholderTargets.length) {
+                placeholderTargets = Arrays.copyOf(placeholderTargets, placeholderCount * 2);
+            }
+            placeholderTargets[placeholderCount] = UNRESOLVED;
+            return -2 - placeholderCount++;
+        }
+
+        /**
+         * @return the flow that a placeholder stands for, NONE,
+         * or the placeholder that it comes down to when that one's statement is still being analysed.
+         */
+        private int resolve(int flow) {
+            while (flow < NONE && placeholderTargets[-2 - flow] != UNRESOLVED) {
+                flow = placeholderTargets[-2 - flow];
+            }
+            return flow;
+        }
+
+        /**
+         * Sends the edges and errors that were added to the patch list since mark to the sink,
+         * except those for the statements around the one that has just been done.
+         * Those are kept for the placeholder they come down to, because the placeholders in between are about to be dropped.
+         */
+        private void patch(int mark) {
+            int kept = mark;
+            for (int i = mark; i < pendingCount; i++) {
+                int target = resolve(pendingPlaceholders[i]);
+                if (target < NONE) {
+                    pendingFlows[kept] = pendingFlows[i];
+                    pendingPlaceholders[kept] = target;
+                    pendingErrors[kept++] = pendingErrors[i];
+                    continue;
+                }
+                if (target == NONE) {
+                    continue;
+                }
+                String error = pendingErrors[i];
+                if (error == null) {
+                    sendNext(pendingFlows[i], target);
+                } else if (error.isEmpty()) {
+                    sendMayBranchTo(pendingFlows[i], target);
+                } else if (error == CUT_OFF) {
+                    cutOff(target, pendingFlows[i]);
+                } else {
+                    sink.error(target, error);
+                }
+            }
+            pendingCount = kept;
+        }
+
+        /**
+         * @return whether the statement that is about to be analysed should become a single STEP instead.
+         * Once the flow or time budget is exceeded, that is the case for all remaining statements.
+         */
+        private boolean outOfBudget() {
+            if (stopReason == null) {
+                if (flowCount >= maxFlows) {
+                    stopReason = "Analysis stopped after " + maxFlows + " flows.";
+                } else if (maxMillis != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                    stopReason = outOfTime();
+                }
+            }
+            if (stopReason != null) {
+                return true;
+            }
+            if (depth >= maxDepth) {
+                depthExceeded = true;
+                return true;
+            }
+            return false;
+        }
+
+        void reportBudget(int start) {
+            if (stopReason != null) {
+                sink.error(start, stopReason);
+            }
+            if (depthExceeded) {
+                sink.error(start, "Statements nested deeper than " + maxDepth + " levels were not analysed.");
+            }
+        }
+
+        /**
+         * @return TRUE or FALSE when folding is on and the condition is a boolean literal, or null.
+         */
+        private Boolean constant(Expression condition) {
+            if (!foldConstantConditions) {
+                return null;
+            }
+            while (condition instanceof EnclosedExpr) {
+                condition = ((EnclosedExpr) condition).getInner();
+            }
+            return condition instanceof BooleanLiteralExpr ? ((BooleanLiteralExpr) condition).getValue() : null;
+        }
+
+        /**
+         * Remembers a flow that the folded flow doesn't go to, so it can be reported when nothing else does.
+         */
+        private void cutOff(int flow, int folded) {
+            if (flow < NONE) {
+                pend(folded, flow, CUT_OFF);
+                return;
+            }
+            if (flow == NONE) {
+                return;
+            }
+            if (cutOffCount == cutOff.length) {
+                cutOff = Arrays.copyOf(cutOff, cutOffCount * 2);
+                cutOffBy = Arrays.copyOf(cutOffBy, cutOffCount * 2);
+            }
+            cutOff[cutOffCount] = flow;
+            cutOffBy[cutOffCount++] = folded;
+        }
+
+        /**
+         * Marks everything that start reaches in one pass over the remembered edges,
+         * then reports every cut off flow that is not reached, unless it is part of code that is reported already.
+         * Folded flows that are not reached themselves are in unreachable code already, so what they cut off is not reported.
+         */
+        void reportUnreachable(int start) {
+            if (cutOffCount == 0) {
+                return;
+            }
+            boolean[] reached = new boolean[flowCount];
+            int[] stack = new int[flowCount];
+            mark(start, reached, stack);
+            // Outer statements start before the statements in them, so they are reported first.
+            int candidateCount = 0;
+            Integer[] candidates = new Integer[cutOffCount];
+            for (int i = 0; i < cutOffCount; i++) {
+                if (reached[cutOffBy[i]]) {
+                    candidates[candidateCount++] = cutOff[i];
+                }
+            }
+            candidates = Arrays.copyOf(candidates, candidateCount);
+            Arrays.sort(candidates, Comparator.comparing((Integer flow) -> nodes[flow].getBegin().orElse(null),
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            for (int flow : candidates) {
+                if (!reached[flow]) {
+                    sink.error(start, "Unreachable code at line " + nodes[flow].getBegin().map(begin -> "" + begin.line).orElse("?") + ".");
+                    mark(flow, reached, stack);
+                }
+            }
+        }
+
+        private void mark(int from, boolean[] reached, int[] stack) {
+            int depth = 0;
+            reached[from] = true;
+            stack[depth++] = from;
+            while (depth > 0) {
+                int flow = stack[--depth];
+                for (int step = 0; step < 2; step++) {
+                    int successor = step == 0 ? nextEdges[flow] : mayBranchToEdges[flow];
+                    if (successor != NONE && !reached[successor]) {
+                        reached[successor] = true;
+                        stack[depth++] = successor;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Analyses a node, with the jump targets, labels and catch clauses that are in the context right now.
+         *
+         * @param next the flow that comes after the node.
+         */
+        private int analyse(Node node, int next) {
+            if (node instanceof Statement && outOfBudget()) {
+                return addError(flow(node, STEP, next), NOT_ANALYSED);
+            }
+            depth++;
+            try {
+                return analyseNode(node, next);
+            } finally {
+                depth--;
+            }
+        }
+
+        private int analyseNode(Node node, int next) {
+            if (node instanceof MethodDeclaration) {
+                Optional<BlockStmt> body = ((MethodDeclaration) node).getBody();
+                return body.isPresent() ? analyseBody(body.get(), next) : NONE;
+            } else if (node instanceof ConstructorDeclaration) {
+                return analyseBody(((ConstructorDeclaration) node).getBody(), next);
+            } else if (node instanceof NodeWithStatements) {
+                NodeList<Statement> statements = ((NodeWithStatements<?>) node).getStatements();
+                for (int i = statements.size() - 1; i >= 0; i--) {
+                    next = analyse(statements.get(i), next);
+                }
+                return next;
+            } else if (node instanceof SwitchStmt) {
+                return analyseSwitchStmt((SwitchStmt) node, next);
+            } else if (node instanceof EmptyStmt) {
+                return next;
+            } else if (node instanceof ContinueStmt) {
+                ContinueStmt continueStmt = (ContinueStmt) node;
+                if (!continueStmt.getLabel().isPresent()) {
+                    return flow(node, CONTINUE, back);
+                }
+                String label = continueStmt.getLabel().get().asString();
+                int i = findLabel(label);
+                if (i < 0) {
+                    return addError(flow(node, CONTINUE, NONE), "Continue label not found: " + label);
+                }
+                return flow(node, CONTINUE, continueTargets[i]);
+            } else if (node instanceof BreakStmt) {
+                BreakStmt breakStmt = (BreakStmt) node;
+                if (!breakStmt.getLabel().isPresent()) {
+                    return flow(node, BREAK, breakTo);
+                }
+                String label = breakStmt.getLabel().get().asString();
+                int i = findLabel(label);
+                if (i < 0) {
+                    return addError(flow(node, BREAK, NONE), "Break label not found: " + label);
+                }
+                return flow(node, BREAK, breakTargets[i]);
+            } else if (node instanceof IfStmt) {
+                IfStmt ifStmt = (IfStmt) node;
+                Optional<Statement> elseStmt = ifStmt.getElseStmt();
+                int thenFlow = analyse(ifStmt.getThenStmt(), next);
+                int elseFlow = elseStmt.isPresent() ? analyse(elseStmt.get(), next) : next;
+                Boolean constant = constant(ifStmt.getCondition());
+                if (constant != null) {
+                    int foldedFlow = flow(node, STEP, constant ? thenFlow : elseFlow);
+                    sink.condition(foldedFlow, ifStmt.getCondition());
+                    cutOff(constant ? elseFlow : thenFlow, foldedFlow);
+                    return foldedFlow;
+                }
+                int ifFlow = flow(node, CHOICE, elseFlow);
+                setMayBranchTo(ifFlow, thenFlow);
+                sink.condition(ifFlow, ifStmt.getCondition());
+                return ifFlow;
+            } else if (node instanceof ForStmt) {
+                ForStmt forStmt = (ForStmt) node;
+                Optional<Expression> compare = forStmt.getCompare();
+                Boolean constant = compare.isPresent() ? constant(compare.get()) : foldConstantConditions ? Boolean.TRUE : null;
+                int forConditionFlow = constant == null ? flow(forStmt, CHOICE, next) : flow(forStmt, STEP, constant ? NONE : next);
+                int updateFlow = forConditionFlow;
+                NodeList<Expression> updates = forStmt.getUpdate();
+                for (int i = updates.size() - 1; i >= 0; i--) {
+                    updateFlow = flow(updates.get(i), FOR_UPDATE, updateFlow);
+                }
+                int bodyFlow = analyseLoopBody(forStmt.getBody(), updateFlow, next);
+                if (compare.isPresent()) {
+                    sink.condition(forConditionFlow, compare.get());
+                }
+                if (constant == null) {
+                    setMayBranchTo(forConditionFlow, bodyFlow);
+                } else if (constant) {
+                    setNext(forConditionFlow, bodyFlow);
+                    cutOff(next, forConditionFlow);
+                } else {
+                    cutOff(bodyFlow, forConditionFlow);
+                }
+                int initializationFlow = forConditionFlow;
+                NodeList<Expression> initializations = forStmt.getInitialization();
+                for (int i = initializations.size() - 1; i >= 0; i--) {
+                    initializationFlow = flow(initializations.get(i), FOR_INITIALIZATION, initializationFlow);
+                }
+                return initializationFlow;
+            } else if (node instanceof ForEachStmt) {
+                ForEachStmt forEachStmt = (ForEachStmt) node;
+                int forEachFlow = flow(node, CHOICE, next);
+                setMayBranchTo(forEachFlow, analyseLoopBody(forEachStmt.getBody(), forEachFlow, next));
+                return forEachFlow;
+            } else if (node instanceof WhileStmt) {
+                WhileStmt whileStmt = (WhileStmt) node;
+                Boolean constant = constant(whileStmt.getCondition());
+                if (constant != null) {
+                    int whileFlow = flow(node, STEP, constant ? NONE : next);
+                    sink.condition(whileFlow, whileStmt.getCondition());
+                    int bodyFlow = analyseLoopBody(whileStmt.getBody(), whileFlow, next);
+                    if (constant) {
+                        setNext(whileFlow, bodyFlow);
+                    }
+                    cutOff(constant ? next : bodyFlow, whileFlow);
+                    return whileFlow;
+                }
+                int whileFlow = flow(node, CHOICE, next);
+                setMayBranchTo(whileFlow, analyseLoopBody(whileStmt.getBody(), whileFlow, next));
+                sink.condition(whileFlow, whileStmt.getCondition());
+                return whileFlow;
+            } else if (node instanceof DoStmt) {
+                DoStmt doStmt = (DoStmt) node;
+                Boolean constant = constant(doStmt.getCondition());
+                int conditionFlow = constant == null ? flow(node, CHOICE, next) : flow(node, STEP, constant ? NONE : next);
+                int outerBreakTo = breakTo;
+                breakTo = next;
+                int bodyFlow = analyse(doStmt.getBody(), conditionFlow);
+                breakTo = outerBreakTo;
+                sink.condition(conditionFlow, doStmt.getCondition());
+                if (constant == null) {
+                    setMayBranchTo(conditionFlow, bodyFlow);
+                } else if (constant) {
+                    setNext(conditionFlow, bodyFlow);
+                    cutOff(next, conditionFlow);
+                }
+                return bodyFlow;
+            } else if (node instanceof LabeledStmt) {
+                LabeledStmt labeledStmt = (LabeledStmt) node;
+                int labeledFlow = newPlaceholder();
+                int mark = pendingCount;
+                pushLabel(labeledStmt.getLabel().asString(), labeledFlow, next);
+                int directFlow = analyse(labeledStmt.getStatement(), next);
+                labelCount--;
+                placeholderTargets[-2 - labeledFlow] = directFlow;
+                patch(mark);
+                placeholderCount--;
+                return directFlow;
+            } else if (node instanceof TryStmt) {
+                return analyseTryStmt((TryStmt) node, next);
+            } else if (node instanceof ThrowStmt) {
+                return analyseThrowStmt((ThrowStmt) node);
+            } else if (node instanceof ReturnStmt) {
+                return flow(node, RETURN, returnFlow);
+            } else if (node instanceof Statement) {
+                return flow(node, STEP, next);
+            }
+            // No flow information in whatever we have now.
             return next;
-        } else if (node instanceof ContinueStmt) {
-            return ((ContinueStmt) node).getLabel()
-                    .map(SimpleName::asString)
-                    .map(label -> continueLabels.get(label)
-                            .map(labeledFlow -> new Flow(node, CONTINUE, labeledFlow))
-                            .getOrElse(new Flow(node, CONTINUE, null).addError("Continue label not found: " + label)))
-                    .orElseGet(() -> new Flow(node, CONTINUE, back));
-        } else if (node instanceof BreakStmt) {
-            return ((BreakStmt) node).getLabel()
-                    .map(SimpleName::asString)
-                    .map(label -> breakLabels.get(label)
-                            .map(labeledFlow -> new Flow(node, BREAK, labeledFlow))
-                            .getOrElse(new Flow(node, BREAK, null).addError("Break label not found: " + label)))
-                    .orElseGet(() -> new Flow(node, BREAK, breakTo));
-        } else if (node instanceof IfStmt) {
-            IfStmt ifStmt = (IfStmt) node;
-            Flow ifFlow = new Flow(node, CHOICE, null)
-                    .setMayBranchTo(analyse(ifStmt.getThenStmt(), back, continueLabels, next, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                    .setCondition(ifStmt.getCondition());
-
-            return Option.ofOptional(ifStmt.getElseStmt())
-                    .map(elseStmt -> ifFlow.setNext(analyse(elseStmt, back, continueLabels, next, breakTo, breakLabels, returnFlow, catchClausesByCatchType)))
-                    .getOrElse(() -> ifFlow.setNext(next));
-        } else if (node instanceof ForStmt) {
-            ForStmt forStmt = (ForStmt) node;
-            Flow forConditionFlow = new Flow(forStmt, CHOICE, next);
-            Flow updateFlow = List.ofAll(forStmt.getUpdate())
-                    .foldRight(forConditionFlow, (currentUpdater, nextFlow) -> new Flow(currentUpdater, FOR_UPDATE, nextFlow));
-            forConditionFlow
-                    .setMayBranchTo(analyse(forStmt.getBody(), updateFlow, continueLabels, updateFlow, next, breakLabels, returnFlow, catchClausesByCatchType))
-                    .setCondition(forStmt.getCompare().orElse(null));
-            return List.ofAll(forStmt.getInitialization())
-                    .foldRight(forConditionFlow, (currentInitializer, nextFlow) -> new Flow(currentInitializer, FOR_INITIALIZATION, nextFlow));
-        } else if (node instanceof ForEachStmt) {
-            ForEachStmt forEachStmt = (ForEachStmt) node;
-            Flow forEachFlow = new Flow(node, CHOICE, next);
-            return forEachFlow
-                    .setMayBranchTo(analyse(forEachStmt.getBody(), forEachFlow, continueLabels, forEachFlow, next, breakLabels, returnFlow, catchClausesByCatchType));
-        } else if (node instanceof WhileStmt) {
-            WhileStmt whileStmt = (WhileStmt) node;
-            Flow whileFlow = new Flow(node, CHOICE, next);
-            return whileFlow
-                    .setMayBranchTo(analyse(whileStmt.getBody(), whileFlow, continueLabels, whileFlow, next, breakLabels, returnFlow, catchClausesByCatchType))
-                    .setCondition(whileStmt.getCondition());
-        } else if (node instanceof DoStmt) {
-            DoStmt doStmt = (DoStmt) node;
-            Flow conditionFlow = new Flow(node, CHOICE, next);
-            Flow bodyFlow = analyse(doStmt.getBody(), back, continueLabels, conditionFlow, next, breakLabels, returnFlow, catchClausesByCatchType);
-            conditionFlow
-                    .setMayBranchTo(bodyFlow)
-                    .setCondition(doStmt.getCondition());
+        }
+
+        /**
+         * A break in the body of a method or constructor ends it, like a return does.
+         */
+        private int analyseBody(BlockStmt body, int next) {
+            int outerBreakTo = breakTo;
+            breakTo = next;
+            int bodyFlow = analyse(body, next);
+            breakTo = outerBreakTo;
             return bodyFlow;
-        } else if (node instanceof LabeledStmt) {
-            LabeledStmt labeledStmt = (LabeledStmt) node;
-            String label = labeledStmt.getLabel().asString();
-            ForwardDeclaredFlow labeledFlow = new ForwardDeclaredFlow();
-            Flow directFlow = analyse(labeledStmt.getStatement(), back, continueLabels.put(label, labeledFlow), next, breakTo, breakLabels.put(label, next), returnFlow, catchClausesByCatchType);
-            return labeledFlow.directTo(directFlow);
-        } else if (node instanceof TryStmt) {
-            return analyseTryStmt((TryStmt) node, back, continueLabels, next, breakTo, breakLabels, returnFlow, catchClausesByCatchType);
-        } else if (node instanceof ThrowStmt) {
+        }
+
+        private int analyseLoopBody(Statement body, int loopFlow, int next) {
+            int outerBack = back;
+            int outerBreakTo = breakTo;
+            back = loopFlow;
+            breakTo = next;
+            int bodyFlow = analyse(body, loopFlow);
+            back = outerBack;
+            breakTo = outerBreakTo;
+            return bodyFlow;
+        }
+
+        private int analyseThrowStmt(ThrowStmt throwStmt) {
+            if (throwResolution != ThrowResolution.SYMBOL_SOLVER) {
+                if (throwMatcher == null) {
+                    throwMatcher = new SyntacticThrowMatcher(throwStmt.findCompilationUnit().orElse(null));
+                }
+                SyntacticThrowMatcher.Match match = throwMatcher.match(throwStmt, catchTypes, catchCount);
+                if (match.isDecided()) {
+                    return flow(throwStmt, THROW, catchFlow(match.getCatchClause()));
+                }
+                if (throwResolution == ThrowResolution.SYNTACTIC) {
+                    return addError(flow(throwStmt, THROW, NONE),
+                            "Cannot tell which catch clause catches this without the symbol solver.");
+                }
+            }
+            int correspondingCatch;
             try {
-                ResolvedType thrownType = ((ThrowStmt) node).getExpression().calculateResolvedType();
-                Flow correspondingCatch = catchClausesByCatchType
-                        .find(tuple -> thrownType.isAssignableBy(tuple._1.resolve())).map(tuple -> tuple._2)
-                        .getOrElse((Flow) null);
-                return new Flow(node, THROW, correspondingCatch);
+                ResolvedType thrownType = throwStmt.getExpression().calculateResolvedType();
+                int catchClause = 0;
+                while (catchClause < catchCount && !thrownType.isAssignableBy(catchTypes[catchCount - 1 - catchClause].resolve())) {
+                    catchClause++;
+                }
+                correspondingCatch = catchFlow(catchClause == catchCount ? -1 : catchClause);
             } catch (IllegalStateException e) {
-                return new Flow(node, THROW, null)
-                        .addError("Cannot define a throws-flow without the symbol solver.");
-            }
-        } else if (node instanceof ReturnStmt) {
-            return new Flow(node, RETURN, returnFlow);
-        } else if (node instanceof Statement) {
-            return new Flow(node, STEP, next);
-        }
-        // No flow information in whatever we have now.
-        return next;
-    }
-
-    private Flow analyseTryStmt(TryStmt tryStmt, Flow back, Map<String, Flow> continueLabels, Flow next, Flow breakTo, Map<String, Flow> breakLabels, Flow returnFlow, List<Tuple2<Type, Flow>> catchClausesByCatchType) {
-        // We have to redirect all the flows escaping this block through the finally block.
-        Flow finallyFlow = tryStmt.getFinallyBlock()
-                .map(fb -> analyse(fb, back, continueLabels, next, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                .orElse(next);
-        Flow finallyFlowForContinue = tryStmt.getFinallyBlock()
-                .map(fb -> analyse(fb, back, continueLabels, back, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                .orElse(next);
-        Flow finallyFlowForBreakTo = tryStmt.getFinallyBlock()
-                .map(fb -> analyse(fb, back, continueLabels, breakTo, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                .orElse(next);
-        Flow finallyFlowForReturn = tryStmt.getFinallyBlock()
-                .map(fb -> analyse(fb, back, continueLabels, returnFlow, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                .orElse(next);
-        Map<String, Flow> finallyFlowForContinueLabels = continueLabels.map((label, labeledContinueFlow) -> Tuple.of(label,
-                tryStmt.getFinallyBlock().map(fb -> analyse(fb, back, continueLabels, labeledContinueFlow, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                        .orElse(labeledContinueFlow)));
-        Map<String, Flow> finallyFlowForBreakLabels = breakLabels.map((label, labeledBreakFlow) -> Tuple.of(label,
-                tryStmt.getFinallyBlock().map(fb -> analyse(fb, back, continueLabels, labeledBreakFlow, breakTo, breakLabels, returnFlow, catchClausesByCatchType))
-                        .orElse(labeledBreakFlow)));
-        List<Tuple2<Type, Flow>> newCatchClausesByCatchType = tryStmt.getCatchClauses().stream()
-                .map(cc -> Tuple.of(cc.getParameter().getType(),
-                        analyse(cc.getBody(), back, finallyFlowForContinueLabels, finallyFlowForContinue, finallyFlowForBreakTo, finallyFlowForBreakLabels, finallyFlowForReturn, catchClausesByCatchType)))
-                .collect(List.collector())
-                .appendAll(catchClausesByCatchType);
-        return analyse(tryStmt.getTryBlock(), finallyFlowForContinue, finallyFlowForContinueLabels, finallyFlow, finallyFlowForBreakTo, finallyFlowForBreakLabels, finallyFlowForReturn, newCatchClausesByCatchType);
-    }
-
-    private Flow analyseSwitchStmt(SwitchStmt switchStmt, Flow back, Map<String, Flow> continueLabels, Flow next, Map<String, Flow> breakLabels, Flow returnFlow, List<Tuple2<Type, Flow>> catchClausesByCatchType) {
-        List<SwitchEntry> entries = List.ofAll(switchStmt.getEntries());
-
-        // Figure out the mapping of entries to statement flows:
-        Map<SwitchEntry, Flow> entryToFirstStatementFlow = entries
-                .foldRight(Tuple.of(next, HashMap.empty()), (SwitchEntry currentEntry, Tuple2<Flow, Map<SwitchEntry, Flow>> nextEntry) -> {
-                    Flow bodyFlow = analyse(currentEntry, back, continueLabels, nextEntry._1, next, breakLabels, returnFlow, catchClausesByCatchType);
-                    if (bodyFlow == null) {
-                        // Empty entry directly falls through to the next:
-                        bodyFlow = nextEntry._1;
-                    }
-                    return Tuple.of(bodyFlow, nextEntry._2.put(currentEntry, bodyFlow));
-                })._2;
+                return addError(flow(throwStmt, THROW, NONE),
+                        "Cannot define a throws-flow without the symbol solver.");
+            }
+            return flow(throwStmt, THROW, correspondingCatch);
+        }
+
+        /**
+         * @param catchClause the position of a catch clause, innermost first, or -1.
+         * @return the flow of the catch clause, or NONE.
+         */
+        private int catchFlow(int catchClause) {
+            return catchClause < 0 ? NONE : catchFlows[catchCount - 1 - catchClause];
+        }
+
+        private int analyseTryStmt(TryStmt tryStmt, int next) {
+            // We have to redirect all the flows escaping this block through the finally block.
+            // Every way out gets its own copy of the finally block, which is a placeholder until the try statement is done.
+            BlockStmt finallyBlock = tryStmt.getFinallyBlock().orElse(null);
+            int mark = pendingCount;
+            int firstCopy = placeholderCount;
+            int finallyFlow = finallyBlock == null ? next : newPlaceholder();
+            int finallyFlowForContinue = finallyBlock == null ? next : newPlaceholder();
+            int finallyFlowForBreakTo = finallyBlock == null ? next : newPlaceholder();
+            int finallyFlowForReturn = finallyBlock == null ? next : newPlaceholder();
 
-        // Create CHOICE nodes pointing to the statement flows and tie them together:
-        return entries.foldRight(next, (currentEntry, nextEntry) -> {
-            Flow bodyFlow = entryToFirstStatementFlow.get(currentEntry).getOrElseThrow(RuntimeException::new);
-            if (currentEntry.getType() != SwitchEntry.Type.STATEMENT_GROUP) {
-                bodyFlow.addError("Only classic switch is supported right now.");
+            int savedLabels = savedCount;
+            if (finallyBlock != null) {
+                // Every label gets copies too. Its targets are saved, so they can be restored afterwards.
+                for (int i = 0; i < labelCount; i++) {
+                    save(continueTargets[i]);
+                    save(breakTargets[i]);
+                    continueTargets[i] = newPlaceholder();
+                    breakTargets[i] = newPlaceholder();
+                }
             }
-            if (currentEntry.getLabels().isEmpty()) {
-                // The default case is not a choice. When all choices have been evaluated, default is mandatory.
-                return bodyFlow;
+            int outerBack = back;
+            int outerBreakTo = breakTo;
+            int outerReturnFlow = returnFlow;
+            breakTo = finallyFlowForBreakTo;
+            returnFlow = finallyFlowForReturn;
+
+            // The catch clauses are only caught by the catch clauses around this try statement.
+            NodeList<CatchClause> catchClauses = tryStmt.getCatchClauses();
+            int savedCatchFlows = savedCount;
+            for (int i = 0; i < catchClauses.size(); i++) {
+                save(analyse(catchClauses.get(i).getBody(), finallyFlowForContinue));
+            }
+            for (int i = catchClauses.size() - 1; i >= 0; i--) {
+                pushCatchClause(catchClauses.get(i).getParameter().getType(), saved[savedCatchFlows + i]);
             }
 
-            return new Flow(currentEntry, CHOICE, nextEntry)
-                    .setMayBranchTo(bodyFlow)
-                    .setCondition(currentEntry.getLabels().get(0));
-        });
+            back = finallyFlowForContinue;
+            int tryFlow = analyse(tryStmt.getTryBlock(), finallyFlow);
+
+            catchCount -= catchClauses.size();
+            savedCount = savedCatchFlows;
+            back = outerBack;
+            breakTo = outerBreakTo;
+            returnFlow = outerReturnFlow;
+            if (finallyBlock != null) {
+                for (int i = 0; i < labelCount; i++) {
+                    continueTargets[i] = saved[savedLabels + i * 2];
+                    breakTargets[i] = saved[savedLabels + i * 2 + 1];
+                }
+            }
+            savedCount = savedLabels;
+            if (finallyBlock == null) {
+                return tryFlow;
+            }
+            return analyseFinallyCopies(finallyBlock, next, tryFlow, mark, firstCopy);
+        }
+
+        /**
+         * Analyses the copies of a finally block that the patch list or the try statement's own flow leads to,
+         * with the targets that the jumps out of the try statement had, and sends the patch list since mark.
+         * The copies are the placeholders from firstCopy on:
+         * completing normally, continue, break, return, and then continue and break for every label.
+         *
+         * @return tryFlow, or where it leads when it is one of the copies.
+         */
+        private int analyseFinallyCopies(BlockStmt finallyBlock, int next, int tryFlow, int mark, int firstCopy) {
+            int copyCount = placeholderCount - firstCopy;
+            int needed = savedCount;
+            for (int k = 0; k < copyCount; k++) {
+                save(0);
+            }
+            markNeededCopy(tryFlow, firstCopy, needed);
+            for (int i = mark; i < pendingCount; i++) {
+                markNeededCopy(pendingPlaceholders[i], firstCopy, needed);
+            }
+            for (int k = 0; k < copyCount; k++) {
+                int target;
+                if (k < 4) {
+                    target = k == 0 ? next : k == 1 ? back : k == 2 ? breakTo : returnFlow;
+                } else {
+                    int label = (k - 4) / 2;
+                    target = k % 2 == 0 ? continueTargets[label] : breakTargets[label];
+                }
+                // Analysing can grow placeholderTargets, so it has to be done before the array is picked.
+                int copyFlow = saved[needed + k] == 0 ? NONE : analyse(finallyBlock, target);
+                placeholderTargets[firstCopy + k] = copyFlow;
+            }
+            patch(mark);
+            tryFlow = resolve(tryFlow);
+            savedCount = needed;
+            placeholderCount = firstCopy;
+            return tryFlow;
+        }
+
+        private void markNeededCopy(int flow, int firstCopy, int needed) {
+            for (; flow < NONE && flow != UNRESOLVED; flow = placeholderTargets[-2 - flow]) {
+                int copy = -2 - flow - firstCopy;
+                if (copy >= 0 && copy < placeholderCount - firstCopy) {
+                    saved[needed + copy] = 1;
+                }
+            }
+        }
+
+        private int analyseSwitchStmt(SwitchStmt switchStmt, int next) {
+            NodeList<SwitchEntry> entries = switchStmt.getEntries();
+
+            // Figure out the mapping of entries to statement flows, last entry first:
+            int outerBreakTo = breakTo;
+            breakTo = next;
+            int savedBodies = savedCount;
+            int nextBodyFlow = next;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                int bodyFlow = analyse(entries.get(i), nextBodyFlow);
+                save(bodyFlow);
+                nextBodyFlow = bodyFlow;
+            }
+            breakTo = outerBreakTo;
+
+            // Create CHOICE nodes pointing to the statement flows and tie them together:
+            int nextEntryFlow = next;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                SwitchEntry entry = entries.get(i);
+                int bodyFlow = saved[savedBodies + entries.size() - 1 - i];
+                if (entry.getType() != SwitchEntry.Type.STATEMENT_GROUP) {
+                    addError(bodyFlow, "Only classic switch is supported right now.");
+                }
+                if (entry.getLabels().isEmpty()) {
+                    // The default case is not a choice. When all choices have been evaluated, default is mandatory.
+                    nextEntryFlow = bodyFlow;
+                } else {
+                    nextEntryFlow = flow(entry, CHOICE, nextEntryFlow);
+                    setMayBranchTo(nextEntryFlow, bodyFlow);
+                    sink.condition(nextEntryFlow, entry.getLabels().get(0));
+                }
+            }
+            savedCount = savedBodies;
+            return nextEntryFlow;
+        }
+
+        /**
+         * @return the position of the innermost label with this name, or -1.
+         */
+        private int findLabel(String label) {
+            for (int i = labelCount - 1; i >= 0; i--) {
+                if (labels[i].equals(label)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void pushLabel(String label, int continueTarget, int breakTarget) {
+            if (labelCount == labels.length) {
+                labels = Arrays.copyOf(labels, labelCount * 2);
+                continueTargets = Arrays.copyOf(continueTargets, labelCount * 2);
+                breakTargets = Arrays.copyOf(breakTargets, labelCount * 2);
+            }
+            labels[labelCount] = label;
+            continueTargets[labelCount] = continueTarget;
+            breakTargets[labelCount++] = breakTarget;
+        }
+
+        private void pushCatchClause(Type type, int flow) {
+            if (catchCount == catchTypes.length) {
+                catchTypes = Arrays.copyOf(catchTypes, catchCount * 2);
+                catchFlows = Arrays.copyOf(catchFlows, catchCount * 2);
+            }
+            catchTypes[catchCount] = type;
+            catchFlows[catchCount++] = flow;
+        }
+
+        private void save(int flow) {
+            if (savedCount == saved.length) {
+                saved = Arrays.copyOf(saved, savedCount * 2);
+            }
+            saved[savedCount++] = flow;
+        }
     }
 }
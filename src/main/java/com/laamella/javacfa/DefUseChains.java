@@ -0,0 +1,274 @@
+package com.laamella.javacfa;
+
+import io.vavr.collection.List;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Answers which writes of a local variable can reach a read, and the other way around.
+ * <p>
+ * Nothing is computed until the first question.
+ * Then the SSA form of the graph is built once,
+ * and every answer is remembered, so asking again doesn't walk the graph.
+ * Phi functions are looked through: the answers only contain flows that really read or write the variable.
+ */
+public class DefUseChains {
+    private static final int[] EMPTY = new int[0];
+
+    private final Flow start;
+    private SsaForm ssa;
+    // The first slot of every variable in the arrays below, which have a slot per version.
+    private int[] versionOffsets;
+    // Per version: the versions written by real writes that it can stand for.
+    private int[][] definitions;
+    // Per version written by a real write: the flows that can read it.
+    private int[][] uses;
+    // Per version: the order in which resolving phi functions found it, the lowest order it can get back to,
+    // and whether it is on the stack of phi functions that don't have an answer yet.
+    private int[] order;
+    private int[] lowLinks;
+    private boolean[] onStack;
+    private int visits = 0;
+
+    private DefUseChains(Flow start) {
+        this.start = requireNonNull(start);
+    }
+
+    /**
+     * @return the chains for the graph starting at start, which are computed when they are first needed.
+     */
+    public static DefUseChains of(Flow start) {
+        return new DefUseChains(start);
+    }
+
+    /**
+     * @return the SSA form that the answers come from.
+     */
+    public synchronized SsaForm getSsaForm() {
+        if (ssa == null) {
+            ssa = SsaForm.of(start);
+            versionOffsets = new int[ssa.getVariables().size() + 1];
+            for (int variable = 0; variable < ssa.getVariables().size(); variable++) {
+                versionOffsets[variable + 1] = versionOffsets[variable] + ssa.getVersionCount(variable) + 1;
+            }
+            definitions = new int[versionOffsets[ssa.getVariables().size()]][];
+            order = new int[definitions.length];
+            lowLinks = new int[definitions.length];
+            onStack = new boolean[definitions.length];
+        }
+        return ssa;
+    }
+
+    /**
+     * @return the flows that write a value of variable that use can read, in flow index order.
+     * Empty when use doesn't read variable, or when no write reaches it.
+     * Variables are told apart by name here, so this is about every variable with that name that use reads.
+     */
+    public synchronized List<Flow> getDefinitions(Flow use, String variable) {
+        SsaForm ssa = getSsaForm();
+        int flow = ssa.getIndex().indexOf(use);
+        if (flow == NONE) {
+            return List.empty();
+        }
+        BitSet flows = new BitSet();
+        for (int i = 0; i < ssa.getAccessCount(flow); i++) {
+            int v = ssa.getAccessVariable(flow, i);
+            if (!ssa.isWrite(flow, i) && ssa.getVariables().get(v).equals(variable)) {
+                for (int version : definitions(v, ssa.getAccessVersion(flow, i))) {
+                    flows.set(ssa.getDefinition(v, version));
+                }
+            }
+        }
+        return toFlows(flows);
+    }
+
+    /**
+     * @return the flows that can read a value of variable that definition writes, in flow index order.
+     * Empty when definition doesn't write variable, or when nothing reads it.
+     * Like for getDefinitions, this is about every variable with that name that definition writes.
+     */
+    public synchronized List<Flow> getUses(Flow definition, String variable) {
+        SsaForm ssa = getSsaForm();
+        int flow = ssa.getIndex().indexOf(definition);
+        if (flow == NONE) {
+            return List.empty();
+        }
+        if (uses == null) {
+            findUses();
+        }
+        BitSet flows = new BitSet();
+        for (int i = 0; i < ssa.getAccessCount(flow); i++) {
+            int v = ssa.getAccessVariable(flow, i);
+            if (ssa.isWrite(flow, i) && ssa.getVariables().get(v).equals(variable)) {
+                for (int reader : uses[versionOffsets[v] + ssa.getAccessVersion(flow, i)]) {
+                    flows.set(reader);
+                }
+            }
+        }
+        return toFlows(flows);
+    }
+
+    private List<Flow> toFlows(BitSet flows) {
+        List<Flow> result = List.empty();
+        for (int flow = flows.length() - 1; flow >= 0; flow = flows.previousSetBit(flow - 1)) {
+            result = result.prepend(ssa.getIndex().get(flow));
+        }
+        return result;
+    }
+
+    /**
+     * @return the versions of real writes that a version can stand for,
+     * following phi functions, and remembering the answer for every phi function on the way.
+     */
+    private int[] definitions(int variable, int version) {
+        int slot = versionOffsets[variable] + version;
+        if (definitions[slot] == null) {
+            if (ssa.isPhi(variable, version)) {
+                resolvePhis(variable, version);
+            } else {
+                definitions[slot] = version == 0 ? EMPTY : new int[]{version};
+            }
+        }
+        return definitions[slot];
+    }
+
+    /**
+     * Tarjan's strongly connected components over the phi functions that a phi function refers to.
+     * Phi functions in loops refer to each other, and all phi functions in such a cycle stand for the same writes.
+     * A component is finished after everything it refers to, so its answer is the union of theirs.
+     * It works with its own stack, because a chain of phi functions can be as long as the code.
+     */
+    private void resolvePhis(int variable, int root) {
+        int offset = versionOffsets[variable];
+        IntStack components = new IntStack();
+        // Each frame is a phi function and the number of its operands that have been looked at.
+        IntStack frames = new IntStack();
+        IntStack progress = new IntStack();
+        enter(offset, root, components, frames, progress);
+        while (frames.size > 0) {
+            int version = frames.top();
+            int phiFlow = ssa.getDefinition(variable, version);
+            int p = progress.values[progress.size - 1]++;
+            if (p < ssa.getIndex().getPredecessorCount(phiFlow)) {
+                int operand = ssa.getPhiOperand(phiFlow, phiOf(phiFlow, variable), p);
+                if (definitions[offset + operand] != null) {
+                    continue;
+                }
+                if (!ssa.isPhi(variable, operand)) {
+                    definitions(variable, operand);
+                } else if (order[offset + operand] == 0) {
+                    enter(offset, operand, components, frames, progress);
+                } else if (onStack[offset + operand]) {
+                    lowLinks[offset + version] = Math.min(lowLinks[offset + version], order[offset + operand]);
+                }
+                continue;
+            }
+            frames.size--;
+            progress.size--;
+            if (frames.size > 0) {
+                int caller = offset + frames.top();
+                lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[offset + version]);
+            }
+            if (lowLinks[offset + version] == order[offset + version]) {
+                finishComponent(variable, version, components);
+            }
+        }
+    }
+
+    private void enter(int offset, int version, IntStack components, IntStack frames, IntStack progress) {
+        order[offset + version] = lowLinks[offset + version] = ++visits;
+        onStack[offset + version] = true;
+        components.push(version);
+        frames.push(version);
+        progress.push(0);
+    }
+
+    /**
+     * Gives all phi functions on the stack down to root the union of the answers for what they refer to outside the component.
+     */
+    private void finishComponent(int variable, int root, IntStack components) {
+        int offset = versionOffsets[variable];
+        int bottom = components.size;
+        do {
+            bottom--;
+        } while (components.values[bottom] != root);
+        BitSet found = new BitSet();
+        for (int i = bottom; i < components.size; i++) {
+            int phiFlow = ssa.getDefinition(variable, components.values[i]);
+            int phi = phiOf(phiFlow, variable);
+            for (int p = 0; p < ssa.getIndex().getPredecessorCount(phiFlow); p++) {
+                int[] operandDefinitions = definitions[offset + ssa.getPhiOperand(phiFlow, phi, p)];
+                // Operands in the component don't have an answer yet, and add nothing of their own.
+                if (operandDefinitions != null) {
+                    for (int definition : operandDefinitions) {
+                        found.set(definition);
+                    }
+                }
+            }
+        }
+        int[] answer = found.stream().toArray();
+        for (int i = bottom; i < components.size; i++) {
+            onStack[offset + components.values[i]] = false;
+            definitions[offset + components.values[i]] = answer;
+        }
+        components.size = bottom;
+    }
+
+    private int phiOf(int flow, int variable) {
+        for (int phi = 0; phi < ssa.getPhiCount(flow); phi++) {
+            if (ssa.getPhiVariable(flow, phi) == variable) {
+                return phi;
+            }
+        }
+        throw new IllegalStateException("No phi function for variable " + variable + " at flow " + flow);
+    }
+
+    /**
+     * Inverts the definitions of all reads at once.
+     */
+    private void findUses() {
+        BitSet[] readers = new BitSet[definitions.length];
+        for (int flow = 0; flow < ssa.getIndex().size(); flow++) {
+            for (int i = 0; i < ssa.getAccessCount(flow); i++) {
+                if (ssa.isWrite(flow, i)) {
+                    continue;
+                }
+                int variable = ssa.getAccessVariable(flow, i);
+                for (int version : definitions(variable, ssa.getAccessVersion(flow, i))) {
+                    int slot = versionOffsets[variable] + version;
+                    if (readers[slot] == null) {
+                        readers[slot] = new BitSet();
+                    }
+                    readers[slot].set(flow);
+                }
+            }
+        }
+        uses = new int[definitions.length][];
+        for (int slot = 0; slot < uses.length; slot++) {
+            uses[slot] = readers[slot] == null ? EMPTY : readers[slot].stream().toArray();
+        }
+    }
+
+    /**
+     * A growable stack of ints, to avoid boxing.
+     */
+    private static class IntStack {
+        private int[] values = new int[8];
+        private int size = 0;
+
+        void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int top() {
+            return values[size - 1];
+        }
+    }
+}
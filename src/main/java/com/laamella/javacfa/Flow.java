@@ -16,6 +16,8 @@ public class Flow {
     private Flow mayBranchTo = null;
     private Expression condition = null;
     private List<String> errors = List.empty();
+    private int id = FlowIndex.NONE;
+    private FlowIndex index = null;
 
     public Flow(Node node, Type type, Flow next) {
         this.node = node;
@@ -51,13 +53,20 @@ public class Flow {
         return type;
     }
 
+    // Changing an edge takes away the number of the flow, so that FlowIndex.of sees that the index of its graph is outdated.
     public Flow setNext(Flow next) {
-        this.next = next;
+        if (next != this.next) {
+            this.next = next;
+            id = FlowIndex.NONE;
+        }
         return this;
     }
 
     public Flow setMayBranchTo(Flow mayBranchTo) {
-        this.mayBranchTo = mayBranchTo;
+        if (mayBranchTo != this.mayBranchTo) {
+            this.mayBranchTo = mayBranchTo;
+            id = FlowIndex.NONE;
+        }
         return this;
     }
 
@@ -66,6 +75,30 @@ public class Flow {
         return this;
     }
 
+    /**
+     * @return the number of this flow in its graph, counting from 0 for the start flow in reverse postorder,
+     * or FlowIndex.NONE when the flow was not made by the analyser, or when its edges were changed since.
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return for a start flow made by the analyser, the index of its graph, otherwise null.
+     * The index is not updated when the graph is changed afterwards, but FlowIndex.of makes a new one then.
+     */
+    public FlowIndex getIndex() {
+        return index;
+    }
+
+    void setIndex(FlowIndex index) {
+        this.index = index;
+    }
+
     /**
      * @return the errors for this flow node.
      */
@@ -90,6 +123,7 @@ public class Flow {
     /**
      * @return when the node type is CHOICE, this will point to the condition expression, if applicable.
      * When it resolves to true, the branch is taken, else next is taken.
+     * A STEP for a folded constant condition has its condition too, and only goes where the condition sends it.
      */
     public Expression getCondition() {
         return condition;
@@ -100,7 +134,7 @@ public class Flow {
         return this;
     }
 
-    enum Type {
+    public enum Type {
         /**
          * A simple step: this flow always goes to the next.
          */
@@ -138,71 +172,4 @@ public class Flow {
          */
         FOR_UPDATE
     }
-
-    /**
-     * A placeholder for when we don't know exactly where something is
-     * going to flow yet, but we need a pointer to it anyway.
-     * <p>
-     * (Terrible use of OOP here to avoid ugly code elsewhere)
-     */
-    static class ForwardDeclaredFlow extends Flow {
-        private Flow indirection;
-
-        public ForwardDeclaredFlow() {
-            super(null, Type.STEP, null);
-        }
-
-        @Override
-        public Node getNode() {
-            return indirection.getNode();
-        }
-
-        @Override
-        public Flow getMayBranchTo() {
-            return indirection.getMayBranchTo();
-        }
-
-        @Override
-        public Flow getNext() {
-            return indirection.getNext();
-        }
-
-        @Override
-        public Type getType() {
-            return indirection.getType();
-        }
-
-        @Override
-        public Flow setNext(Flow next) {
-            indirection.setNext(next);
-            return indirection;
-        }
-
-        @Override
-        public Flow setMayBranchTo(Flow mayBranchTo) {
-            indirection.setMayBranchTo(mayBranchTo);
-            return indirection;
-        }
-
-        @Override
-        public Flow setType(Type type) {
-            indirection.setType(type);
-            return indirection;
-        }
-
-        @Override
-        public List<String> getErrors() {
-            return indirection.getErrors();
-        }
-
-        public Flow directTo(Flow flow) {
-            indirection = flow;
-            return flow;
-        }
-
-        public Flow getIndirection() {
-            return indirection;
-        }
-
-    }
 }
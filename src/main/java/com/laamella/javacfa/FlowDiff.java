@@ -0,0 +1,380 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.Printer;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import io.vavr.collection.List;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption.PRINT_COMMENTS;
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The differences between the control flow graphs of two versions of a piece of code.
+ * <p>
+ * Flows are matched by their structure and the code they contain, never by line numbers,
+ * so moving a method around does not show up as a difference.
+ * Matching is done in three passes, each linear in the size of the graphs:
+ * <ol>
+ * <li>walking both graphs in parallel from the start flows, matching flows with identical code,</li>
+ * <li>matching flows whose code is unique in both graphs, and walking on from there,</li>
+ * <li>walking on from all matches, now also matching flows that only have the same type and kind of AST node,
+ * which catches statements that were edited in place.</li>
+ * </ol>
+ */
+public class FlowDiff {
+    private static final Printer PRINTER = new DefaultPrettyPrinter(
+            new DefaultPrinterConfiguration().removeOption(new DefaultConfigurationOption(PRINT_COMMENTS)));
+
+    private final List<Edge> added;
+    private final List<Edge> removed;
+    private final List<Redirection> redirected;
+    private final List<Flow> addedFlows;
+    private final List<Flow> removedFlows;
+
+    private FlowDiff(List<Edge> added, List<Edge> removed, List<Redirection> redirected, List<Flow> addedFlows, List<Flow> removedFlows) {
+        this.added = added;
+        this.removed = removed;
+        this.redirected = redirected;
+        this.addedFlows = addedFlows;
+        this.removedFlows = removedFlows;
+    }
+
+    /**
+     * @return the differences going from the graph starting at before to the graph starting at after.
+     */
+    public static FlowDiff between(Flow before, Flow after) {
+        return new Matcher(FlowIndex.of(requireNonNull(before)), FlowIndex.of(requireNonNull(after))).diff();
+    }
+
+    /**
+     * @return edges that only exist in the new graph.
+     */
+    public List<Edge> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return edges that only exist in the old graph.
+     */
+    public List<Edge> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return edges that exist in both graphs, but point to a different flow.
+     */
+    public List<Redirection> getRedirected() {
+        return redirected;
+    }
+
+    /**
+     * @return flows in the new graph that have no counterpart in the old graph.
+     */
+    public List<Flow> getAddedFlows() {
+        return addedFlows;
+    }
+
+    /**
+     * @return flows in the old graph that have no counterpart in the new graph.
+     */
+    public List<Flow> getRemovedFlows() {
+        return removedFlows;
+    }
+
+    /**
+     * @return whether the control flow is the same in both graphs.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && redirected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        removed.forEach(edge -> output.append("- ").append(edge).append("\n"));
+        added.forEach(edge -> output.append("+ ").append(edge).append("\n"));
+        redirected.forEach(redirection -> output.append("~ ").append(redirection).append("\n"));
+        return output.toString();
+    }
+
+    private static String describe(Flow flow) {
+        if (flow == null) {
+            return "end";
+        }
+        return flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("?") + " " + flow.getType();
+    }
+
+    public enum EdgeKind {
+        NEXT, MAY_BRANCH_TO
+    }
+
+    /**
+     * An edge that was added or removed.
+     */
+    public static class Edge {
+        private final Flow from;
+        private final EdgeKind kind;
+        private final Flow to;
+
+        Edge(Flow from, EdgeKind kind, Flow to) {
+            this.from = from;
+            this.kind = kind;
+            this.to = to;
+        }
+
+        public Flow getFrom() {
+            return from;
+        }
+
+        public EdgeKind getKind() {
+            return kind;
+        }
+
+        public Flow getTo() {
+            return to;
+        }
+
+        @Override
+        public String toString() {
+            return describe(from) + (kind == EdgeKind.NEXT ? " -> " : " or ") + describe(to);
+        }
+    }
+
+    /**
+     * An edge that exists in both graphs, but points to different flows.
+     * The targets are from the old and the new graph respectively.
+     */
+    public static class Redirection {
+        private final Flow before;
+        private final Flow after;
+        private final EdgeKind kind;
+        private final Flow targetBefore;
+        private final Flow targetAfter;
+
+        Redirection(Flow before, Flow after, EdgeKind kind, Flow targetBefore, Flow targetAfter) {
+            this.before = before;
+            this.after = after;
+            this.kind = kind;
+            this.targetBefore = targetBefore;
+            this.targetAfter = targetAfter;
+        }
+
+        /**
+         * @return the source of the edge in the old graph.
+         */
+        public Flow getBefore() {
+            return before;
+        }
+
+        /**
+         * @return the source of the edge in the new graph.
+         */
+        public Flow getAfter() {
+            return after;
+        }
+
+        public EdgeKind getKind() {
+            return kind;
+        }
+
+        public Flow getTargetBefore() {
+            return targetBefore;
+        }
+
+        public Flow getTargetAfter() {
+            return targetAfter;
+        }
+
+        @Override
+        public String toString() {
+            return describe(before) + (kind == EdgeKind.NEXT ? " -> " : " or ") + describe(targetBefore) + " => " + describe(targetAfter);
+        }
+    }
+
+    private static class Matcher {
+        private final FlowIndex before;
+        private final FlowIndex after;
+        private final String[] beforeKeys;
+        private final String[] afterKeys;
+        // For every flow, the index of the matching flow in the other graph, or NONE.
+        private final int[] beforeToAfter;
+        private final int[] afterToBefore;
+        private final Deque<Integer> todo = new ArrayDeque<>();
+
+        Matcher(FlowIndex before, FlowIndex after) {
+            this.before = before;
+            this.after = after;
+            beforeKeys = keys(before);
+            afterKeys = keys(after);
+            beforeToAfter = new int[before.size()];
+            afterToBefore = new int[after.size()];
+            Arrays.fill(beforeToAfter, NONE);
+            Arrays.fill(afterToBefore, NONE);
+        }
+
+        FlowDiff diff() {
+            match(0, 0);
+            walk(true);
+            matchUniqueKeys();
+            walk(true);
+            for (int b = 0; b < before.size(); b++) {
+                if (beforeToAfter[b] != NONE) {
+                    todo.add(b);
+                }
+            }
+            walk(false);
+            return collect();
+        }
+
+        private void match(int b, int a) {
+            beforeToAfter[b] = a;
+            afterToBefore[a] = b;
+            todo.add(b);
+        }
+
+        private void walk(boolean exact) {
+            while (!todo.isEmpty()) {
+                int b = todo.poll();
+                int a = beforeToAfter[b];
+                tryMatch(before.getNext(b), after.getNext(a), exact);
+                tryMatch(before.getMayBranchTo(b), after.getMayBranchTo(a), exact);
+            }
+        }
+
+        private void tryMatch(int b, int a, boolean exact) {
+            if (b == NONE || a == NONE || beforeToAfter[b] != NONE || afterToBefore[a] != NONE) {
+                return;
+            }
+            if (exact ? beforeKeys[b].equals(afterKeys[a]) : kind(before.get(b)).equals(kind(after.get(a)))) {
+                match(b, a);
+            }
+        }
+
+        private void matchUniqueKeys() {
+            Map<String, Integer> beforeUnique = uniqueKeys(beforeKeys, beforeToAfter);
+            Map<String, Integer> afterUnique = uniqueKeys(afterKeys, afterToBefore);
+            beforeUnique.forEach((key, b) -> {
+                Integer a = afterUnique.get(key);
+                if (b != NONE && a != null && a != NONE) {
+                    match(b, a);
+                }
+            });
+        }
+
+        // Maps the keys of unmatched flows to their index, or to NONE when the key is not unique.
+        private static Map<String, Integer> uniqueKeys(String[] keys, int[] matches) {
+            Map<String, Integer> unique = new HashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (matches[i] == NONE) {
+                    unique.put(keys[i], unique.containsKey(keys[i]) ? NONE : i);
+                }
+            }
+            return unique;
+        }
+
+        private FlowDiff collect() {
+            // Appending to a vavr List copies it, so everything is collected in array lists first.
+            ArrayList<Edge> added = new ArrayList<>();
+            ArrayList<Edge> removed = new ArrayList<>();
+            ArrayList<Redirection> redirected = new ArrayList<>();
+            ArrayList<Flow> addedFlows = new ArrayList<>();
+            ArrayList<Flow> removedFlows = new ArrayList<>();
+            for (int b = 0; b < before.size(); b++) {
+                int a = beforeToAfter[b];
+                if (a == NONE) {
+                    removedFlows.add(before.get(b));
+                }
+                for (EdgeKind kind : EdgeKind.values()) {
+                    int targetBefore = target(before, b, kind);
+                    int targetAfter = a == NONE ? NONE : target(after, a, kind);
+                    if (targetBefore != NONE && targetAfter == NONE) {
+                        removed.add(new Edge(before.get(b), kind, before.get(targetBefore)));
+                    } else if (targetBefore == NONE && targetAfter != NONE) {
+                        added.add(new Edge(after.get(a), kind, after.get(targetAfter)));
+                    } else if (targetBefore != NONE && beforeToAfter[targetBefore] != targetAfter) {
+                        redirected.add(new Redirection(before.get(b), after.get(a), kind, before.get(targetBefore), after.get(targetAfter)));
+                    }
+                }
+            }
+            for (int a = 0; a < after.size(); a++) {
+                if (afterToBefore[a] == NONE) {
+                    addedFlows.add(after.get(a));
+                    for (EdgeKind kind : EdgeKind.values()) {
+                        int targetAfter = target(after, a, kind);
+                        if (targetAfter != NONE) {
+                            added.add(new Edge(after.get(a), kind, after.get(targetAfter)));
+                        }
+                    }
+                }
+            }
+            return new FlowDiff(List.ofAll(added), List.ofAll(removed), List.ofAll(redirected), List.ofAll(addedFlows), List.ofAll(removedFlows));
+        }
+
+        private static int target(FlowIndex index, int flow, EdgeKind kind) {
+            return kind == EdgeKind.NEXT ? index.getNext(flow) : index.getMayBranchTo(flow);
+        }
+
+        private static String[] keys(FlowIndex index) {
+            String[] keys = new String[index.size()];
+            for (int i = 0; i < index.size(); i++) {
+                keys[i] = key(index.get(i));
+            }
+            return keys;
+        }
+
+        /**
+         * The type of flow and the kind of AST node, which is what the final pass matches on.
+         */
+        private static String kind(Flow flow) {
+            return flow.getType() + " " + flow.getNode().getClass().getSimpleName();
+        }
+
+        /**
+         * The kind, and the code that this flow stands for.
+         * For choices and folded constant conditions that is the condition, not the whole statement,
+         * so that editing the body of a loop does not unmatch the loop.
+         * A statement that was not analysed because the budget ran out is keyed on where it begins,
+         * instead of on all the code inside it.
+         */
+        private static String key(Flow flow) {
+            Node node = flow.getNode();
+            switch (flow.getType()) {
+                case START:
+                    return kind(flow);
+                case CHOICE:
+                    if (flow.getCondition() != null) {
+                        return kind(flow) + " " + PRINTER.print(flow.getCondition());
+                    }
+                    if (node instanceof ForEachStmt) {
+                        ForEachStmt forEachStmt = (ForEachStmt) node;
+                        return kind(flow) + " " + PRINTER.print(forEachStmt.getVariable()) + " : " + PRINTER.print(forEachStmt.getIterable());
+                    }
+                    return kind(flow);
+                default:
+                    if (flow.getErrors().contains(ControlFlowAnalyser.NOT_ANALYSED)) {
+                        return kind(flow) + " not analysed at " + node.getRange().map(range -> "" + range.begin).orElse("?");
+                    }
+                    if (node instanceof IfStmt || node instanceof ForStmt || node instanceof WhileStmt || node instanceof DoStmt) {
+                        // A folded constant condition, which a for statement may not have.
+                        return flow.getCondition() == null ? kind(flow) : kind(flow) + " " + PRINTER.print(flow.getCondition());
+                    }
+                    return kind(flow) + " " + PRINTER.print(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+
+import java.util.Arrays;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+
+/**
+ * Builds the {@link Flow} graph from the events of the analyser, and indexes it.
+ * It can be used for one graph after the other.
+ */
+public class FlowGraphSink implements FlowSink {
+    private Flow[] flows = new Flow[64];
+    private int size = 0;
+    private Flow start = null;
+
+    @Override
+    public void begin(Node node) {
+        Arrays.fill(flows, 0, size, null);
+        size = 0;
+        start = null;
+    }
+
+    @Override
+    public void flow(int flow, Node node, Flow.Type type) {
+        if (flow >= flows.length) {
+            flows = Arrays.copyOf(flows, Math.max(flows.length * 2, flow + 1));
+        }
+        flows[flow] = new Flow(node, type, null);
+        size = Math.max(size, flow + 1);
+    }
+
+    @Override
+    public void next(int flow, int to) {
+        flows[flow].setNext(flows[to]);
+    }
+
+    @Override
+    public void mayBranchTo(int flow, int to) {
+        flows[flow].setMayBranchTo(flows[to]);
+    }
+
+    @Override
+    public void condition(int flow, Expression condition) {
+        flows[flow].setCondition(condition);
+    }
+
+    @Override
+    public void error(int flow, String message) {
+        flows[flow].addError(message);
+    }
+
+    @Override
+    public void end(int start) {
+        if (start != NONE) {
+            this.start = flows[start];
+            FlowIndex.assign(this.start);
+        }
+        // Let go of the flows that can't be reached.
+        Arrays.fill(flows, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Lets an existing flow stand in for a number, so that new flows can point to it.
+     */
+    void adopt(int flow, Flow existing) {
+        if (flow >= flows.length) {
+            flows = Arrays.copyOf(flows, Math.max(flows.length * 2, flow + 1));
+        }
+        flows[flow] = existing;
+        size = Math.max(size, flow + 1);
+    }
+
+    /**
+     * @return the flow with this number in the graph that is being built.
+     */
+    Flow get(int flow) {
+        return flows[flow];
+    }
+
+    /**
+     * @return the start flow of the last graph, or null when the code had no flow.
+     */
+    public Flow getStart() {
+        return start;
+    }
+}
@@ -0,0 +1,233 @@
+package com.laamella.javacfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Numbers all flows reachable from a start flow densely, in reverse postorder.
+ * <p>
+ * The numbering only depends on the shape of the graph:
+ * successors are visited in the order next, then mayBranchTo.
+ * Analyses can use the numbers to keep their state in plain arrays.
+ * <p>
+ * The analyser indexes every graph it creates, and gives every flow its number as its id.
+ * Next to the successors, the index keeps the predecessors of every flow
+ * in compressed sparse row form: one array with all predecessors, ordered by target,
+ * and one with the offset of the first predecessor of every target.
+ */
+public final class FlowIndex {
+    /**
+     * Used in place of an index when there is no flow.
+     */
+    public static final int NONE = -1;
+
+    private final Flow[] flows;
+    private final int[] next;
+    private final int[] mayBranchTo;
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+    // Only needed for graphs whose flows don't carry their number as id.
+    private final Map<Flow, Integer> indexes;
+
+    private FlowIndex(Flow[] flows, int[] next, int[] mayBranchTo, Map<Flow, Integer> indexes) {
+        this.flows = flows;
+        this.next = next;
+        this.mayBranchTo = mayBranchTo;
+        this.indexes = indexes;
+        int size = flows.length;
+        predecessorOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            if (next[i] != NONE) {
+                predecessorOffsets[next[i] + 1]++;
+            }
+            if (mayBranchTo[i] != NONE) {
+                predecessorOffsets[mayBranchTo[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            predecessorOffsets[i + 1] += predecessorOffsets[i];
+        }
+        predecessors = new int[predecessorOffsets[size]];
+        int[] filled = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (next[i] != NONE) {
+                predecessors[predecessorOffsets[next[i]] + filled[next[i]]++] = i;
+            }
+            if (mayBranchTo[i] != NONE) {
+                predecessors[predecessorOffsets[mayBranchTo[i]] + filled[mayBranchTo[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the index of all flows reachable from start.
+     * For a graph from the analyser, this is the index that the analyser made,
+     * unless the edges of one of its flows were changed since. Then the graph is indexed and numbered again.
+     */
+    public static FlowIndex of(Flow start) {
+        requireNonNull(start);
+        FlowIndex index = start.getIndex();
+        if (index == null) {
+            return build(start, false);
+        }
+        // Changing the edges of a flow takes away its number.
+        for (int i = 0; i < index.size(); i++) {
+            if (index.flows[i].getId() != i) {
+                return assign(start);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes a graph, gives every flow its number as id, and keeps the index with the start flow.
+     */
+    static FlowIndex assign(Flow start) {
+        FlowIndex index = build(start, true);
+        for (int i = 0; i < index.size(); i++) {
+            index.flows[i].setId(i);
+        }
+        start.setIndex(index);
+        return index;
+    }
+
+    private static FlowIndex build(Flow start, boolean assignIds) {
+        Flow[] postorder = new Flow[16];
+        int size = 0;
+        Map<Flow, Integer> seen = new HashMap<>();
+        // Each stack entry is a flow and the number of its successors that have been looked at.
+        Flow[] stack = new Flow[16];
+        int[] progress = new int[16];
+        int depth = 0;
+        stack[depth] = start;
+        progress[depth++] = 0;
+        seen.put(start, NONE);
+        while (depth > 0) {
+            Flow flow = stack[depth - 1];
+            int step = progress[depth - 1]++;
+            Flow successor = step == 0 ? flow.getNext() : step == 1 ? flow.getMayBranchTo() : null;
+            if (step < 2) {
+                if (successor != null && !seen.containsKey(successor)) {
+                    seen.put(successor, NONE);
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                        progress = Arrays.copyOf(progress, depth * 2);
+                    }
+                    stack[depth] = successor;
+                    progress[depth++] = 0;
+                }
+                continue;
+            }
+            depth--;
+            if (size == postorder.length) {
+                postorder = Arrays.copyOf(postorder, size * 2);
+            }
+            postorder[size++] = flow;
+        }
+
+        Flow[] flows = new Flow[size];
+        for (int i = 0; i < size; i++) {
+            flows[i] = postorder[size - 1 - i];
+            seen.put(flows[i], i);
+        }
+        int[] next = new int[size];
+        int[] mayBranchTo = new int[size];
+        for (int i = 0; i < size; i++) {
+            next[i] = indexOf(seen, flows[i].getNext());
+            mayBranchTo[i] = indexOf(seen, flows[i].getMayBranchTo());
+        }
+        return new FlowIndex(flows, next, mayBranchTo, assignIds ? null : seen);
+    }
+
+    private static int indexOf(Map<Flow, Integer> indexes, Flow flow) {
+        if (flow == null) {
+            return NONE;
+        }
+        return indexes.get(flow);
+    }
+
+    /**
+     * @return the amount of flows in the graph.
+     */
+    public int size() {
+        return flows.length;
+    }
+
+    /**
+     * @return the flow with this index. The start flow has index 0.
+     */
+    public Flow get(int index) {
+        return flows[index];
+    }
+
+    /**
+     * @return the index of this flow, or NONE if it is not part of the graph.
+     */
+    public int indexOf(Flow flow) {
+        if (flow == null) {
+            return NONE;
+        }
+        int id = flow.getId();
+        if (id >= 0 && id < flows.length && flows[id] == flow) {
+            return id;
+        }
+        Integer index = indexes == null ? null : indexes.get(flow);
+        return index == null ? NONE : index;
+    }
+
+    /**
+     * @return the index of the normally taken flow, or NONE.
+     */
+    public int getNext(int index) {
+        return next[index];
+    }
+
+    /**
+     * @return the index of the flow that may be branched to, or NONE.
+     */
+    public int getMayBranchTo(int index) {
+        return mayBranchTo[index];
+    }
+
+    /**
+     * @return the amount of edges that lead to this flow.
+     * A flow whose next and mayBranchTo are both this flow counts twice.
+     */
+    public int getPredecessorCount(int index) {
+        return predecessorOffsets[index + 1] - predecessorOffsets[index];
+    }
+
+    /**
+     * @return the index of a flow that leads to this flow.
+     * Predecessors are ordered by their own index, and an edge from next comes before an edge from mayBranchTo.
+     */
+    public int getPredecessor(int index, int i) {
+        return predecessors[predecessorOffsets[index] + i];
+    }
+
+    /**
+     * @return all flows, in index order.
+     * The stream is sized and splits evenly, so it can be made parallel.
+     */
+    public Stream<Flow> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return all flows, in index order, for processing on several threads.
+     */
+    public Stream<Flow> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    Spliterator<Flow> spliterator() {
+        return Spliterators.spliterator(flows, FlowSpliterator.CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+}
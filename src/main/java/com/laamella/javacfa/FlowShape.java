@@ -0,0 +1,123 @@
+package com.laamella.javacfa;
+
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The structure of a control flow graph without its AST:
+ * only the types of the flows and how they are connected.
+ * <p>
+ * Two methods with the same control flow have equal shapes,
+ * no matter where they are or what their statements do,
+ * so comparing hashes is enough to see whether the control flow of a method changed.
+ * Use a {@link FlowShapeInterner} to share one instance between all methods with the same shape.
+ */
+public final class FlowShape {
+    // Three ints per flow, in FlowIndex order: type, next and mayBranchTo.
+    private final int[] encoded;
+    private final long hash;
+
+    private FlowShape(int[] encoded) {
+        this.encoded = encoded;
+        this.hash = hash(encoded);
+    }
+
+    /**
+     * @return the shape of the graph starting at start.
+     */
+    public static FlowShape of(Flow start) {
+        return of(FlowIndex.of(requireNonNull(start)));
+    }
+
+    /**
+     * @return the shape of an indexed graph.
+     */
+    public static FlowShape of(FlowIndex index) {
+        int[] encoded = new int[index.size() * 3];
+        for (int i = 0; i < index.size(); i++) {
+            encoded[i * 3] = index.get(i).getType().ordinal();
+            encoded[i * 3 + 1] = index.getNext(i);
+            encoded[i * 3 + 2] = index.getMayBranchTo(i);
+        }
+        return new FlowShape(encoded);
+    }
+
+    private static long hash(int[] encoded) {
+        // 64 bit FNV-1a over the ints, finished with a murmur style mix.
+        long h = 0xcbf29ce484222325L;
+        for (int value : encoded) {
+            h ^= value;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return the amount of flows in the shape.
+     */
+    public int size() {
+        return encoded.length / 3;
+    }
+
+    /**
+     * @return the type of the flow with this index. Index 0 is the start flow.
+     */
+    public Flow.Type getType(int index) {
+        return Flow.Type.values()[encoded[index * 3]];
+    }
+
+    /**
+     * @return the index of the normally taken flow, or {@link FlowIndex#NONE}.
+     */
+    public int getNext(int index) {
+        return encoded[index * 3 + 1];
+    }
+
+    /**
+     * @return the index of the flow that may be branched to, or {@link FlowIndex#NONE}.
+     */
+    public int getMayBranchTo(int index) {
+        return encoded[index * 3 + 2];
+    }
+
+    /**
+     * @return a 64 bit structural hash. Equal shapes have equal hashes.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FlowShape)) {
+            return false;
+        }
+        FlowShape other = (FlowShape) o;
+        return hash == other.hash && Arrays.equals(encoded, other.encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < size(); i++) {
+            output.append(i).append(' ').append(getType(i)).append(" -> ").append(getNext(i));
+            if (getMayBranchTo(i) != FlowIndex.NONE) {
+                output.append(" or ").append(getMayBranchTo(i));
+            }
+            output.append('\n');
+        }
+        return output.toString();
+    }
+}
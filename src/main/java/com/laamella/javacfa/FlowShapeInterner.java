@@ -0,0 +1,39 @@
+package com.laamella.javacfa;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of flow shapes, so that all methods with the same control flow share one {@link FlowShape}.
+ * <p>
+ * Safe to use from multiple threads.
+ */
+public class FlowShapeInterner {
+    private final ConcurrentMap<FlowShape, FlowShape> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the pooled shape of the graph starting at start.
+     */
+    public FlowShape intern(Flow start) {
+        return intern(FlowShape.of(start));
+    }
+
+    /**
+     * @return the pooled shape that is equal to this shape.
+     */
+    public FlowShape intern(FlowShape shape) {
+        FlowShape existing = shapes.putIfAbsent(shape, shape);
+        return existing == null ? shape : existing;
+    }
+
+    /**
+     * @return the amount of distinct shapes in the pool.
+     */
+    public int size() {
+        return shapes.size();
+    }
+
+    public void clear() {
+        shapes.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+
+/**
+ * Receives the control flow graph of a piece of code while the analyser creates it,
+ * so that users that only need counts, errors or an export don't have to build {@link Flow} objects.
+ * <p>
+ * Flows are numbered in the order in which they are created, starting at 0 for every graph.
+ * Edges always point at flows that have been announced already.
+ * The start flow is created last, and is passed to {@link #end(int)}.
+ * <p>
+ * Only flows that can be part of the graph are announced: a finally block is only copied for the jumps that go through it.
+ * The exceptions are catch clauses that no analysed throw jumps to, and code that folded constant conditions cut off,
+ * which are announced before the analyser knows that they can not be reached from the start flow.
+ *
+ * @see ControlFlowAnalyser#analyse(Node, FlowSink)
+ */
+public interface FlowSink {
+    /**
+     * The analyser starts on a piece of code.
+     */
+    default void begin(Node node) {
+    }
+
+    /**
+     * A new flow, numbered one higher than the flow before it.
+     */
+    void flow(int flow, Node node, Flow.Type type);
+
+    /**
+     * The normally taken flow after flow is to.
+     */
+    void next(int flow, int to);
+
+    /**
+     * Flow may branch to to.
+     */
+    void mayBranchTo(int flow, int to);
+
+    /**
+     * The condition that decides whether a CHOICE flow branches,
+     * or the constant condition that a folded STEP flow stands for.
+     */
+    default void condition(int flow, Expression condition) {
+    }
+
+    default void error(int flow, String message) {
+    }
+
+    /**
+     * The graph is complete.
+     *
+     * @param start the start flow, or FlowIndex.NONE when the code has no flow, like an empty or abstract method.
+     */
+    default void end(int start) {
+    }
+}
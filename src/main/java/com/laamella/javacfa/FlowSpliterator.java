@@ -0,0 +1,102 @@
+package com.laamella.javacfa;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Goes over the flows of several indexed graphs as if they were one array.
+ * <p>
+ * A position is the amount of flows in the graphs before it, plus the index within its graph,
+ * so splitting in half is finding the graph that holds the middle position, which is a binary search.
+ * That way a parallel stream can split big graphs as well as many small ones.
+ */
+class FlowSpliterator implements Spliterator<Flow> {
+    // Not DISTINCT: the same graph can be passed twice.
+    static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+
+    private final FlowIndex[] indexes;
+    // Per graph: the position of its first flow, and one more entry with the total amount of flows.
+    private final long[] offsets;
+    private long position;
+    private final long end;
+    // The graph that holds position.
+    private int graph;
+
+    FlowSpliterator(FlowIndex[] indexes) {
+        this.indexes = requireNonNull(indexes);
+        offsets = new long[indexes.length + 1];
+        for (int i = 0; i < indexes.length; i++) {
+            offsets[i + 1] = offsets[i] + indexes[i].size();
+        }
+        position = 0;
+        end = offsets[indexes.length];
+        graph = 0;
+    }
+
+    private FlowSpliterator(FlowIndex[] indexes, long[] offsets, long position, long end, int graph) {
+        this.indexes = indexes;
+        this.offsets = offsets;
+        this.position = position;
+        this.end = end;
+        this.graph = graph;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Flow> action) {
+        if (position >= end) {
+            return false;
+        }
+        while (position >= offsets[graph + 1]) {
+            graph++;
+        }
+        action.accept(indexes[graph].get((int) (position - offsets[graph])));
+        position++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Flow> action) {
+        while (position < end) {
+            while (position >= offsets[graph + 1]) {
+                graph++;
+            }
+            FlowIndex index = indexes[graph];
+            int last = (int) (Math.min(end, offsets[graph + 1]) - offsets[graph]);
+            for (int i = (int) (position - offsets[graph]); i < last; i++) {
+                action.accept(index.get(i));
+            }
+            position = offsets[graph] + last;
+        }
+    }
+
+    @Override
+    public Spliterator<Flow> trySplit() {
+        long middle = (position + end) >>> 1;
+        if (middle <= position) {
+            return null;
+        }
+        // The last graph that starts at or before the middle.
+        // Every graph has at least a start flow, so the offsets are all different.
+        int middleGraph = Arrays.binarySearch(offsets, graph, indexes.length, middle);
+        if (middleGraph < 0) {
+            middleGraph = -middleGraph - 2;
+        }
+        FlowSpliterator prefix = new FlowSpliterator(indexes, offsets, position, middle, graph);
+        position = middle;
+        graph = middleGraph;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,296 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import io.vavr.collection.List;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Guesses how often every flow runs, compared to one run of the analysed code, without running anything.
+ * <p>
+ * The frequencies are pushed through the graph once, in flow index order, so it takes linear time.
+ * A choice sends part of its frequency to where it may branch to, and the rest to its next flow.
+ * A loop header runs the loop multiplier times as often as the code that enters the loop,
+ * and an edge that leaves loops is divided by the multiplier once for every loop it leaves.
+ * The condition of a loop doesn't split its frequency:
+ * the loop runs as often as the multiplier says, and then leaves as often as it was entered.
+ * A break or return out of a loop is on top of that, with the chance that its choice branches,
+ * so the code after a loop with several exits looks somewhat more frequent than it is.
+ */
+public class FrequencyEstimator {
+    private double branchProbability = 0.5;
+    private double loopMultiplier = 10;
+
+    /**
+     * @param branchProbability the chance that a choice branches, that is: the condition of an if or a loop is true,
+     *                          or a case matches. The default is 0.5.
+     */
+    public FrequencyEstimator setBranchProbability(double branchProbability) {
+        if (branchProbability < 0 || branchProbability > 1) {
+            throw new IllegalArgumentException("The branch probability must be between 0 and 1.");
+        }
+        this.branchProbability = branchProbability;
+        return this;
+    }
+
+    public double getBranchProbability() {
+        return branchProbability;
+    }
+
+    /**
+     * @param loopMultiplier how many times the body of a loop is expected to run every time the loop is entered.
+     *                       The default is 10.
+     */
+    public FrequencyEstimator setLoopMultiplier(double loopMultiplier) {
+        if (!(loopMultiplier > 0)) {
+            throw new IllegalArgumentException("The loop multiplier must be more than 0.");
+        }
+        this.loopMultiplier = loopMultiplier;
+        return this;
+    }
+
+    public double getLoopMultiplier() {
+        return loopMultiplier;
+    }
+
+    /**
+     * @return the estimated frequencies of the flows in the graph starting at start.
+     */
+    public Frequencies estimate(Flow start) {
+        requireNonNull(start);
+        FlowIndex index = FlowIndex.of(start);
+        LoopForest loops = LoopForest.of(index);
+        double[] frequencies = new double[index.size()];
+        frequencies[0] = 1;
+        // Flows are numbered in reverse postorder, so all edges except back edges point to a higher number,
+        // and every flow has received everything from its predecessors when it is its turn.
+        for (int i = 0; i < index.size(); i++) {
+            Flow flow = index.get(i);
+            LoopForest.Loop loop = loops.getLoop(flow);
+            if (loop != null && loop.getHeader() == flow) {
+                frequencies[i] *= loopMultiplier;
+            }
+            int next = index.getNext(i);
+            int mayBranchTo = index.getMayBranchTo(i);
+            boolean nextIsBack = loops.getNextEdgeType(flow) == LoopForest.EdgeType.BACK;
+            if (mayBranchTo == NONE) {
+                if (next != NONE && !nextIsBack) {
+                    frequencies[next] += frequencies[i] / leave(loops, flow, index.get(next));
+                }
+                continue;
+            }
+            boolean mayBranchToIsBack = loops.getMayBranchToEdgeType(flow) == LoopForest.EdgeType.BACK;
+            // Ending the whole flow leaves all loops.
+            double nextDivisor = next == NONE ? Math.pow(loopMultiplier, loops.getDepth(flow)) : leave(loops, flow, index.get(next));
+            double mayBranchToDivisor = leave(loops, flow, index.get(mayBranchTo));
+            boolean nextStays = nextIsBack ? continuesInnermostLoop(loop, index.get(next)) : nextDivisor == 1;
+            boolean mayBranchToStays = mayBranchToIsBack ? continuesInnermostLoop(loop, index.get(mayBranchTo)) : mayBranchToDivisor == 1;
+            double nextShare = 1 - branchProbability;
+            double mayBranchToShare = branchProbability;
+            if (nextStays != mayBranchToStays && isLoopStatement(flow.getNode())) {
+                // The condition of a loop, either at the header or at the end of a do-while: both sides get everything.
+                nextShare = 1;
+                mayBranchToShare = 1;
+            }
+            if (next != NONE && !nextIsBack) {
+                frequencies[next] += frequencies[i] * nextShare / nextDivisor;
+            }
+            if (!mayBranchToIsBack) {
+                frequencies[mayBranchTo] += frequencies[i] * mayBranchToShare / mayBranchToDivisor;
+            }
+        }
+        return new Frequencies(index, frequencies);
+    }
+
+    private static boolean isLoopStatement(Node node) {
+        return node instanceof WhileStmt || node instanceof DoStmt || node instanceof ForStmt || node instanceof ForEachStmt;
+    }
+
+    /**
+     * @return whether a back edge to header stays in the innermost loop, instead of continuing a loop around it.
+     */
+    private static boolean continuesInnermostLoop(LoopForest.Loop loop, Flow header) {
+        return loop != null && loop.getHeader() == header;
+    }
+
+    /**
+     * @return what the frequency is divided by when going from source to target, which is 1 when no loops are left.
+     * Target is not a back edge target, so it is in the same loop as source, in a loop around it,
+     * or it is the header of a loop that is nested in one of those.
+     */
+    private double leave(LoopForest loops, Flow source, Flow target) {
+        LoopForest.Loop targetLoop = loops.getLoop(target);
+        if (targetLoop != null && targetLoop.getHeader() == target) {
+            targetLoop = targetLoop.getParent();
+        }
+        int left = loops.getDepth(source) - (targetLoop == null ? 0 : targetLoop.getDepth());
+        return left <= 0 ? 1 : Math.pow(loopMultiplier, left);
+    }
+
+    /**
+     * @return the limit flows that are expected to run most often, over all constructors and methods,
+     * most often first. Flows that are expected to run equally often keep the order of the code.
+     */
+    public List<HotSpot> getHotSpots(CompilationUnitFlows flows, int limit) {
+        Ranking ranking = new Ranking(limit);
+        flows.getConstructorFlows().appendAll(flows.getMethodFlows())
+                .filter(start -> start != null)
+                .forEach(start -> estimate(start).rank(ranking));
+        return ranking.toList();
+    }
+
+    /**
+     * The estimated frequencies of all flows in one graph.
+     */
+    public static class Frequencies {
+        private final FlowIndex index;
+        private final double[] frequencies;
+
+        private Frequencies(FlowIndex index, double[] frequencies) {
+            this.index = index;
+            this.frequencies = frequencies;
+        }
+
+        public FlowIndex getIndex() {
+            return index;
+        }
+
+        /**
+         * @return how often the flow with this index is expected to run for one run of the analysed code.
+         */
+        public double getFrequency(int flow) {
+            return frequencies[flow];
+        }
+
+        /**
+         * @return how often flow is expected to run for one run of the analysed code, or 0 when it is not in the graph.
+         */
+        public double getFrequency(Flow flow) {
+            int i = index.indexOf(flow);
+            return i == NONE ? 0 : frequencies[i];
+        }
+
+        /**
+         * @return the limit statements that are expected to run most often, most often first.
+         * The start flow is not a statement, so it is never one of them.
+         */
+        public List<HotSpot> getHotSpots(int limit) {
+            Ranking ranking = new Ranking(limit);
+            rank(ranking);
+            return ranking.toList();
+        }
+
+        private void rank(Ranking ranking) {
+            Flow start = index.get(0);
+            for (int i = 1; i < index.size(); i++) {
+                ranking.offer(new HotSpot(start, index.get(i), frequencies[i]));
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder output = new StringBuilder();
+            for (int i = 0; i < index.size(); i++) {
+                Flow flow = index.get(i);
+                output.append(flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("?"))
+                        .append(" ").append(flow.getType())
+                        .append(" ").append(format(frequencies[i]))
+                        .append("\n");
+            }
+            return output.toString();
+        }
+
+        private static String format(double frequency) {
+            return BigDecimal.valueOf(frequency).round(new MathContext(4)).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * A flow and how often it is expected to run.
+     */
+    public static class HotSpot {
+        private final Flow start;
+        private final Flow flow;
+        private final double frequency;
+
+        HotSpot(Flow start, Flow flow, double frequency) {
+            this.start = start;
+            this.flow = flow;
+            this.frequency = frequency;
+        }
+
+        /**
+         * @return the start flow of the graph that flow is in, which holds the constructor or method.
+         */
+        public Flow getStart() {
+            return start;
+        }
+
+        public Flow getFlow() {
+            return flow;
+        }
+
+        public double getFrequency() {
+            return frequency;
+        }
+
+        @Override
+        public String toString() {
+            return flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("?") + " " + flow.getType() + " " + Frequencies.format(frequency);
+        }
+    }
+
+    /**
+     * Keeps the limit most frequent hot spots it is offered in a heap, so ranking n flows takes n log limit time.
+     */
+    private static class Ranking {
+        private final int limit;
+        private final PriorityQueue<Ranked> heap;
+        private int offered = 0;
+
+        Ranking(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("The limit can not be negative.");
+            }
+            this.limit = limit;
+            // The least interesting hot spot on top: the least frequent, and of those the one offered last.
+            heap = new PriorityQueue<>(Comparator.<Ranked>comparingDouble(r -> r.hotSpot.frequency)
+                    .thenComparing(Comparator.<Ranked>comparingInt(r -> r.order).reversed()));
+        }
+
+        void offer(HotSpot hotSpot) {
+            heap.add(new Ranked(hotSpot, offered++));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<HotSpot> toList() {
+            List<HotSpot> list = List.empty();
+            while (!heap.isEmpty()) {
+                list = list.prepend(heap.poll().hotSpot);
+            }
+            return list;
+        }
+    }
+
+    private static class Ranked {
+        private final HotSpot hotSpot;
+        private final int order;
+
+        Ranked(HotSpot hotSpot, int order) {
+            this.hotSpot = hotSpot;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.laamella.javacfa;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes the control flow information available in a node as JSON.
+ * <p>
+ * The flows are numbered as in {@link FlowIndex}, so the start flow has id 0.
+ */
+public class JsonOutput {
+    public String print(Flow flow) {
+        requireNonNull(flow);
+        FlowIndex index = FlowIndex.of(flow);
+        StringBuilder output = new StringBuilder("[");
+        for (int i = 0; i < index.size(); i++) {
+            if (i > 0) {
+                output.append(',');
+            }
+            innerPrint(output, index, i);
+        }
+        return output.append(']').toString();
+    }
+
+    private void innerPrint(StringBuilder output, FlowIndex index, int i) {
+        Flow flow = index.get(i);
+        output.append("{\"id\":").append(i)
+                .append(",\"line\":").append(flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("null"))
+                .append(",\"type\":\"").append(flow.getType().name()).append('"')
+                .append(",\"next\":").append(reference(index.getNext(i)))
+                .append(",\"mayBranchTo\":").append(reference(index.getMayBranchTo(i)));
+        if (!flow.getErrors().isEmpty()) {
+            output.append(",\"errors\":").append(flow.getErrors().map(JsonOutput::quote).mkString("[", ",", "]"));
+        }
+        output.append('}');
+    }
+
+    private static String reference(int index) {
+        return index == FlowIndex.NONE ? "null" : Integer.toString(index);
+    }
+
+    /**
+     * @return text as a JSON string literal.
+     */
+    public static String quote(String text) {
+        StringBuilder output = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    output.append("\\\"");
+                    break;
+                case '\\':
+                    output.append("\\\\");
+                    break;
+                case '\n':
+                    output.append("\\n");
+                    break;
+                case '\r':
+                    output.append("\\r");
+                    break;
+                case '\t':
+                    output.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+            }
+        }
+        return output.append('"').toString();
+    }
+}
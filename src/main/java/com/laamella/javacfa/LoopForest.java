@@ -0,0 +1,431 @@
+package com.laamella.javacfa;
+
+import io.vavr.collection.List;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The loops in a control flow graph, nested in a forest.
+ * <p>
+ * The edges are classified with a depth first search from the start flow.
+ * Every target of a back edge is a loop header,
+ * and the loop bodies are collected from the back edges with a union-find structure,
+ * innermost loops first, which takes near linear time.
+ * <p>
+ * Java code without goto always gives reducible graphs,
+ * so every loop has exactly one header.
+ */
+public class LoopForest {
+    /**
+     * The relation between the source and the target of an edge in the depth first search tree.
+     */
+    public enum EdgeType {
+        /**
+         * The edge that the search discovered the target through.
+         */
+        TREE,
+        /**
+         * An edge to an ancestor, which closes a loop.
+         */
+        BACK,
+        /**
+         * An edge to a descendant that was already discovered through another path.
+         */
+        FORWARD,
+        /**
+         * Any other edge.
+         */
+        CROSS
+    }
+
+    private final FlowIndex index;
+    private final EdgeType[] nextEdgeTypes;
+    private final EdgeType[] mayBranchToEdgeTypes;
+    private final Loop[] innermostLoops;
+    private final List<Loop> roots;
+
+    private LoopForest(FlowIndex index, EdgeType[] nextEdgeTypes, EdgeType[] mayBranchToEdgeTypes, Loop[] innermostLoops, List<Loop> roots) {
+        this.index = index;
+        this.nextEdgeTypes = nextEdgeTypes;
+        this.mayBranchToEdgeTypes = mayBranchToEdgeTypes;
+        this.innermostLoops = innermostLoops;
+        this.roots = roots;
+    }
+
+    /**
+     * @return the loops in the graph starting at start.
+     */
+    public static LoopForest of(Flow start) {
+        return of(FlowIndex.of(requireNonNull(start)));
+    }
+
+    /**
+     * @return the loops in an indexed graph.
+     */
+    public static LoopForest of(FlowIndex index) {
+        return new Builder(index).build();
+    }
+
+    /**
+     * @return the outermost loops.
+     */
+    public List<Loop> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @return all loops, outer loops before the loops nested in them.
+     */
+    public List<Loop> getLoops() {
+        return roots.flatMap(Loop::withNestedLoops);
+    }
+
+    /**
+     * @return the innermost loop containing flow, or null if flow is not in a loop.
+     */
+    public Loop getLoop(Flow flow) {
+        int i = index.indexOf(flow);
+        return i == NONE ? null : innermostLoops[i];
+    }
+
+    /**
+     * @return the amount of loops around flow.
+     */
+    public int getDepth(Flow flow) {
+        Loop loop = getLoop(flow);
+        return loop == null ? 0 : loop.getDepth();
+    }
+
+    /**
+     * @return the type of the edge to flow.getNext(), or null if there is none.
+     */
+    public EdgeType getNextEdgeType(Flow flow) {
+        return nextEdgeTypes[index.indexOf(flow)];
+    }
+
+    /**
+     * @return the type of the edge to flow.getMayBranchTo(), or null if there is none.
+     */
+    public EdgeType getMayBranchToEdgeType(Flow flow) {
+        return mayBranchToEdgeTypes[index.indexOf(flow)];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        getLoops().forEach(loop -> {
+            for (int i = 1; i < loop.getDepth(); i++) {
+                output.append("  ");
+            }
+            output.append(line(loop.getHeader())).append(" ").append(loop.getHeader().getType())
+                    .append(" depth ").append(loop.getDepth())
+                    .append(loop.getBody().map(LoopForest::line).mkString(" body: ", " ", ""))
+                    .append(loop.getExits().map(LoopForest::line).mkString(" exits: ", " ", ""))
+                    .append("\n");
+        });
+        return output.toString();
+    }
+
+    private static String line(Flow flow) {
+        if (flow == null) {
+            return "end";
+        }
+        return flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("?");
+    }
+
+    /**
+     * A natural loop: a header and all flows that can get back to it without passing it.
+     */
+    public static class Loop {
+        private final Flow header;
+        private final Loop parent;
+        private final int depth;
+        private List<Loop> children = List.empty();
+        private List<Flow> body = List.empty();
+        private List<Flow> exits = List.empty();
+
+        Loop(Flow header, Loop parent) {
+            this.header = header;
+            this.parent = parent;
+            this.depth = parent == null ? 1 : parent.depth + 1;
+        }
+
+        /**
+         * @return the only flow through which the loop can be entered.
+         */
+        public Flow getHeader() {
+            return header;
+        }
+
+        /**
+         * @return the loop this loop is nested in, or null for an outermost loop.
+         */
+        public Loop getParent() {
+            return parent;
+        }
+
+        /**
+         * @return the loops directly nested in this loop.
+         */
+        public List<Loop> getChildren() {
+            return children;
+        }
+
+        /**
+         * @return all flows in the loop, including the header and the flows of nested loops.
+         */
+        public List<Flow> getBody() {
+            return body;
+        }
+
+        /**
+         * @return the flows outside the loop that the loop can continue with.
+         * A null entry means the loop can end the whole flow.
+         */
+        public List<Flow> getExits() {
+            return exits;
+        }
+
+        /**
+         * @return 1 for an outermost loop, 2 for a loop inside that, etc.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return whether this loop is loop, or is nested in it.
+         */
+        public boolean isInside(Loop loop) {
+            Loop current = this;
+            while (current != null && current.depth > loop.depth) {
+                current = current.parent;
+            }
+            return current == loop;
+        }
+
+        private List<Loop> withNestedLoops() {
+            return children.flatMap(Loop::withNestedLoops).prepend(this);
+        }
+    }
+
+    private static class Builder {
+        private final FlowIndex index;
+        private final int size;
+        private final int[] preorder;
+        private final int[] postorder;
+        private final EdgeType[] nextEdgeTypes;
+        private final EdgeType[] mayBranchToEdgeTypes;
+        private final int[] loopHeader;
+        private final int[] outerHeader;
+
+        Builder(FlowIndex index) {
+            this.index = index;
+            size = index.size();
+            preorder = new int[size];
+            postorder = new int[size];
+            nextEdgeTypes = new EdgeType[size];
+            mayBranchToEdgeTypes = new EdgeType[size];
+            loopHeader = new int[size];
+            outerHeader = new int[size];
+            Arrays.fill(loopHeader, NONE);
+            Arrays.fill(outerHeader, NONE);
+        }
+
+        LoopForest build() {
+            classifyEdges();
+            findLoops();
+            return nestLoops();
+        }
+
+        private void classifyEdges() {
+            Arrays.fill(preorder, NONE);
+            Arrays.fill(postorder, NONE);
+            int[] stack = new int[size];
+            int[] progress = new int[size];
+            int depth = 0;
+            int preCounter = 0;
+            int postCounter = 0;
+            stack[depth] = 0;
+            progress[depth++] = 0;
+            preorder[0] = preCounter++;
+            while (depth > 0) {
+                int flow = stack[depth - 1];
+                int step = progress[depth - 1]++;
+                if (step == 2) {
+                    postorder[flow] = postCounter++;
+                    depth--;
+                    continue;
+                }
+                int successor = step == 0 ? index.getNext(flow) : index.getMayBranchTo(flow);
+                if (successor == NONE) {
+                    continue;
+                }
+                EdgeType type;
+                if (preorder[successor] == NONE) {
+                    type = EdgeType.TREE;
+                    preorder[successor] = preCounter++;
+                    stack[depth] = successor;
+                    progress[depth++] = 0;
+                } else if (postorder[successor] == NONE) {
+                    type = EdgeType.BACK;
+                } else if (preorder[successor] > preorder[flow]) {
+                    type = EdgeType.FORWARD;
+                } else {
+                    type = EdgeType.CROSS;
+                }
+                (step == 0 ? nextEdgeTypes : mayBranchToEdgeTypes)[flow] = type;
+            }
+        }
+
+        /**
+         * Fills loopHeader with the header of the innermost loop around every flow,
+         * and outerHeader with the header of the loop around every loop.
+         */
+        private void findLoops() {
+            // Union-find: every flow points towards the header of the outermost loop found around it so far.
+            int[] representative = new int[size];
+            for (int i = 0; i < size; i++) {
+                representative[i] = i;
+            }
+            int[] byPreorder = new int[size];
+            for (int i = 0; i < size; i++) {
+                byPreorder[preorder[i]] = i;
+            }
+            boolean[] inBody = new boolean[size];
+            int[] body = new int[size];
+            for (int p = size - 1; p >= 0; p--) {
+                int header = byPreorder[p];
+                int bodySize = 0;
+                boolean isHeader = false;
+                for (int e = 0; e < index.getPredecessorCount(header); e++) {
+                    int edge = incomingEdge(header, e);
+                    if (edgeType(edge) == EdgeType.BACK) {
+                        isHeader = true;
+                        int member = find(representative, edge / 2);
+                        if (member != header && !inBody[member]) {
+                            inBody[member] = true;
+                            body[bodySize++] = member;
+                        }
+                    }
+                }
+                if (!isHeader) {
+                    continue;
+                }
+                for (int i = 0; i < bodySize; i++) {
+                    for (int e = 0; e < index.getPredecessorCount(body[i]); e++) {
+                        int edge = incomingEdge(body[i], e);
+                        if (edgeType(edge) == EdgeType.BACK) {
+                            continue;
+                        }
+                        int member = find(representative, edge / 2);
+                        if (member != header && !inBody[member]) {
+                            inBody[member] = true;
+                            body[bodySize++] = member;
+                        }
+                    }
+                }
+                loopHeader[header] = header;
+                for (int i = 0; i < bodySize; i++) {
+                    int member = body[i];
+                    inBody[member] = false;
+                    if (loopHeader[member] == member) {
+                        outerHeader[member] = header;
+                    } else {
+                        loopHeader[member] = header;
+                    }
+                    representative[member] = header;
+                }
+            }
+        }
+
+        private static int find(int[] representative, int flow) {
+            int root = flow;
+            while (representative[root] != root) {
+                root = representative[root];
+            }
+            while (representative[flow] != root) {
+                int next = representative[flow];
+                representative[flow] = root;
+                flow = next;
+            }
+            return root;
+        }
+
+        /**
+         * Edges are numbered flow * 2 for next, and flow * 2 + 1 for mayBranchTo.
+         */
+        private EdgeType edgeType(int edge) {
+            return (edge % 2 == 0 ? nextEdgeTypes : mayBranchToEdgeTypes)[edge / 2];
+        }
+
+        /**
+         * @return the number of the i-th edge pointing to target, taking the predecessors from the index.
+         */
+        private int incomingEdge(int target, int i) {
+            int source = index.getPredecessor(target, i);
+            // When both edges of the source lead here, the source is listed twice, next first.
+            boolean second = i > 0 && index.getPredecessor(target, i - 1) == source;
+            return index.getNext(source) == target && !second ? source * 2 : source * 2 + 1;
+        }
+
+        private LoopForest nestLoops() {
+            // Flows are numbered in reverse postorder, so outer loop headers come before inner loop headers.
+            Loop[] loops = new Loop[size];
+            for (int i = 0; i < size; i++) {
+                if (loopHeader[i] == i) {
+                    loops[i] = new Loop(index.get(i), outerHeader[i] == NONE ? null : loops[outerHeader[i]]);
+                }
+            }
+            // Going backwards, so that prepending keeps everything in flow order.
+            List<Loop> roots = List.empty();
+            Loop[] innermostLoops = new Loop[size];
+            for (int i = size - 1; i >= 0; i--) {
+                if (loops[i] != null) {
+                    if (loops[i].parent == null) {
+                        roots = roots.prepend(loops[i]);
+                    } else {
+                        loops[i].parent.children = loops[i].parent.children.prepend(loops[i]);
+                    }
+                }
+                innermostLoops[i] = loopHeader[i] == NONE ? null : loops[loopHeader[i]];
+                for (Loop loop = innermostLoops[i]; loop != null; loop = loop.parent) {
+                    loop.body = loop.body.prepend(index.get(i));
+                }
+            }
+            // Per exit, with one more slot for the end of the flow: the header of the last loop that it was added to.
+            int[] addedTo = new int[size + 1];
+            Arrays.fill(addedTo, NONE);
+            for (int header = 0; header < size; header++) {
+                if (loops[header] == null) {
+                    continue;
+                }
+                ArrayList<Flow> exits = new ArrayList<>();
+                for (Flow member : loops[header].body) {
+                    int i = index.indexOf(member);
+                    addExit(header, innermostLoops, index.getNext(i), addedTo, exits);
+                    if (index.getMayBranchTo(i) != NONE) {
+                        addExit(header, innermostLoops, index.getMayBranchTo(i), addedTo, exits);
+                    }
+                }
+                loops[header].exits = List.ofAll(exits);
+            }
+            return new LoopForest(index, nextEdgeTypes, mayBranchToEdgeTypes, innermostLoops, roots);
+        }
+
+        private void addExit(int header, Loop[] innermostLoops, int target, int[] addedTo, ArrayList<Flow> exits) {
+            if (target != NONE && innermostLoops[target] != null && innermostLoops[target].isInside(innermostLoops[header])) {
+                return;
+            }
+            int slot = target == NONE ? size : target;
+            if (addedTo[slot] != header) {
+                addedTo[slot] = header;
+                exits.add(target == NONE ? null : index.get(target));
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.laamella.javacfa;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the shape of many control flow graphs outside of the Java heap,
+ * either in direct byte buffers or in a memory mapped file.
+ * <p>
+ * A graph is stored as a header with its flow count,
+ * followed by a fixed size record per flow in {@link FlowIndex} order:
+ * type, next, mayBranchTo and the line number of the AST node.
+ * Graphs are referred to by the handle that {@link #append(Flow)} returns.
+ * <p>
+ * Appending is synchronized. Reading is lock free and can be done from any number of threads,
+ * as long as the handle was handed over safely, or was obtained through {@link #getGraph(int)}.
+ */
+public class OffHeapFlowStore implements Closeable {
+    /**
+     * Used in place of a handle for code that had no flow, like an abstract method.
+     */
+    public static final long NO_GRAPH = -1;
+
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int HEADER_SIZE = 4;
+    private static final int FLOW_SIZE = 16;
+    private static final int TYPE = 0;
+    private static final int NEXT = 4;
+    private static final int MAY_BRANCH_TO = 8;
+    private static final int LINE = 12;
+    private static final Flow.Type[] TYPES = Flow.Type.values();
+
+    private final int chunkSize;
+    private final FileChannel channel;
+    private long mappedSize = 0;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int position = 0;
+    private volatile long[] graphs = new long[1024];
+    private volatile int graphCount = 0;
+
+    private OffHeapFlowStore(int chunkSize, FileChannel channel) {
+        if (chunkSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Chunk size too small: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a store in direct byte buffers of 64MB each.
+     */
+    public OffHeapFlowStore() {
+        this(DEFAULT_CHUNK_SIZE, null);
+    }
+
+    /**
+     * Creates a store in direct byte buffers of chunkSize bytes each.
+     */
+    public static OffHeapFlowStore inMemory(int chunkSize) {
+        return new OffHeapFlowStore(chunkSize, null);
+    }
+
+    /**
+     * Creates a store in a memory mapped file, which is mapped chunkSize bytes at a time.
+     * Existing contents of the file are overwritten.
+     */
+    public static OffHeapFlowStore mapped(Path file, int chunkSize) throws IOException {
+        return new OffHeapFlowStore(chunkSize, FileChannel.open(requireNonNull(file), CREATE, TRUNCATE_EXISTING, READ, WRITE));
+    }
+
+    /**
+     * Stores the graph starting at start.
+     *
+     * @return the handle to read the graph with.
+     */
+    public long append(Flow start) {
+        return append(FlowIndex.of(requireNonNull(start)));
+    }
+
+    /**
+     * Stores all graphs in a compilation unit, constructors first.
+     *
+     * @return the handles to read the graphs with, NO_GRAPH for methods without a graph.
+     */
+    public long[] append(CompilationUnitFlows flows) {
+        return flows.getConstructorFlows().appendAll(flows.getMethodFlows())
+                .map(flow -> flow == null ? NO_GRAPH : append(flow))
+                .toJavaStream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private synchronized long append(FlowIndex index) {
+        int size = HEADER_SIZE + index.size() * FLOW_SIZE;
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks.length == 0 || chunks[chunks.length - 1].capacity() - position < size) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = allocate(Math.max(size, chunkSize));
+            position = 0;
+        }
+        ByteBuffer chunk = chunks[chunks.length - 1];
+        int offset = position;
+        chunk.putInt(offset, index.size());
+        for (int i = 0; i < index.size(); i++) {
+            int record = offset + HEADER_SIZE + i * FLOW_SIZE;
+            Flow flow = index.get(i);
+            chunk.putInt(record + TYPE, flow.getType().ordinal());
+            chunk.putInt(record + NEXT, index.getNext(i));
+            chunk.putInt(record + MAY_BRANCH_TO, index.getMayBranchTo(i));
+            chunk.putInt(record + LINE, flow.getNode().getRange().map(range -> range.begin.line).orElse(-1));
+        }
+        position += size;
+        this.chunks = chunks;
+
+        long handle = ((long) (chunks.length - 1) << 32) | offset;
+        long[] graphs = this.graphs;
+        if (graphCount == graphs.length) {
+            graphs = Arrays.copyOf(graphs, graphCount * 2);
+        }
+        graphs[graphCount] = handle;
+        this.graphs = graphs;
+        graphCount++;
+        return handle;
+    }
+
+    private ByteBuffer allocate(int size) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, mappedSize, size);
+            mappedSize += size;
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the amount of graphs in the store.
+     */
+    public int getGraphCount() {
+        return graphCount;
+    }
+
+    /**
+     * @return the handle of the n'th graph that was appended.
+     */
+    public long getGraph(int n) {
+        if (n < 0 || n >= graphCount) {
+            throw new IndexOutOfBoundsException("No graph " + n);
+        }
+        return graphs[n];
+    }
+
+    /**
+     * @return the amount of flows in a graph. Flows are numbered from 0, which is the start flow.
+     */
+    public int getFlowCount(long graph) {
+        return chunk(graph).getInt(offset(graph));
+    }
+
+    /**
+     * @return the type of a flow.
+     */
+    public Flow.Type getType(long graph, int flow) {
+        return TYPES[chunk(graph).getInt(record(graph, flow) + TYPE)];
+    }
+
+    /**
+     * @return the normally taken flow, or {@link FlowIndex#NONE} when the flow ends after this step.
+     */
+    public int getNext(long graph, int flow) {
+        return chunk(graph).getInt(record(graph, flow) + NEXT);
+    }
+
+    /**
+     * @return the flow that may be branched to, or {@link FlowIndex#NONE} if there is no branch.
+     */
+    public int getMayBranchTo(long graph, int flow) {
+        return chunk(graph).getInt(record(graph, flow) + MAY_BRANCH_TO);
+    }
+
+    /**
+     * @return the line the flow's AST node starts at, or -1 if it is unknown.
+     */
+    public int getLine(long graph, int flow) {
+        return chunk(graph).getInt(record(graph, flow) + LINE);
+    }
+
+    private ByteBuffer chunk(long graph) {
+        return chunks[(int) (graph >>> 32)];
+    }
+
+    private static int offset(long graph) {
+        return (int) graph;
+    }
+
+    private static int record(long graph, int flow) {
+        return offset(graph) + HEADER_SIZE + flow * FLOW_SIZE;
+    }
+
+    /**
+     * @return the amount of bytes reserved outside of the heap.
+     */
+    public long getReservedBytes() {
+        long total = 0;
+        for (ByteBuffer chunk : chunks) {
+            total += chunk.capacity();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
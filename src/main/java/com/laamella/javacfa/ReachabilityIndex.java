@@ -0,0 +1,303 @@
+package com.laamella.javacfa;
+
+import java.util.Arrays;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Answers whether one flow can run after another, without walking the graph for every question.
+ * <p>
+ * The strongly connected components of the graph are found with Tarjan's algorithm,
+ * which collapses every loop into one component and leaves a directed acyclic graph of components.
+ * When there are not too many components, the transitive closure of that graph is stored as one bitset per component,
+ * and a question is a single bit lookup.
+ * Above the limit the closure would take too much memory,
+ * so questions are answered by a search over the components that skips every component that comes too late
+ * in topological order to lead to the target.
+ */
+public final class ReachabilityIndex {
+    /**
+     * The default maximum amount of components for which the closure is stored,
+     * which takes at most 2 megabytes.
+     */
+    public static final int DEFAULT_MAX_CLOSURE_COMPONENTS = 4096;
+
+    private final FlowIndex index;
+    // Per flow: its component. Components are numbered in the order Tarjan's algorithm finishes them,
+    // so a component can only reach components with a lower number.
+    private final int[] components;
+    private final int componentCount;
+    // Per component: whether it can reach itself, because it has more than one flow or a flow that loops to itself.
+    private final boolean[] cyclic;
+    // The successor components of every component, in compressed sparse row form.
+    private final int[] successorOffsets;
+    private final int[] successors;
+    // Per component: the bits of the components it can reach, or null when the closure is too big.
+    private final long[][] closure;
+    // Scratch space for searches when there is no closure.
+    private long[] visited;
+    private int[] stack;
+
+    private ReachabilityIndex(FlowIndex index, int maxClosureComponents) {
+        this.index = index;
+        int size = index.size();
+        components = new int[size];
+        cyclic = new boolean[size];
+        componentCount = findComponents();
+        successorOffsets = new int[componentCount + 1];
+        successors = condense();
+        closure = componentCount <= maxClosureComponents ? close() : null;
+    }
+
+    /**
+     * @return the reachability index of the graph starting at start.
+     */
+    public static ReachabilityIndex of(Flow start) {
+        return of(FlowIndex.of(requireNonNull(start)));
+    }
+
+    /**
+     * @return the reachability index of an indexed graph.
+     */
+    public static ReachabilityIndex of(FlowIndex index) {
+        return of(index, DEFAULT_MAX_CLOSURE_COMPONENTS);
+    }
+
+    /**
+     * @param maxClosureComponents the maximum amount of components for which the closure is stored.
+     *                             The closure takes the square of the amount of components in bits.
+     * @return the reachability index of an indexed graph.
+     */
+    public static ReachabilityIndex of(FlowIndex index, int maxClosureComponents) {
+        return new ReachabilityIndex(requireNonNull(index), maxClosureComponents);
+    }
+
+    public FlowIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the amount of strongly connected components.
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * @return the strongly connected component of the flow with this index.
+     * Flows that can reach each other are in the same component.
+     */
+    public int getComponent(int flow) {
+        return components[flow];
+    }
+
+    /**
+     * @return whether the questions are answered from a stored closure, in constant time.
+     */
+    public boolean hasClosure() {
+        return closure != null;
+    }
+
+    /**
+     * @return whether to can run after from, following at least one edge.
+     * A flow can only reach itself when it is in a loop.
+     * Flows that are not in the graph can't reach anything, and can't be reached.
+     */
+    public boolean canReach(Flow from, Flow to) {
+        int fromIndex = index.indexOf(from);
+        int toIndex = index.indexOf(to);
+        return fromIndex != NONE && toIndex != NONE && canReach(fromIndex, toIndex);
+    }
+
+    /**
+     * @return whether the flow with index to can run after the flow with index from, following at least one edge.
+     */
+    public boolean canReach(int from, int to) {
+        int source = components[from];
+        int target = components[to];
+        if (source == target) {
+            return cyclic[source];
+        }
+        if (source < target) {
+            return false;
+        }
+        if (closure != null) {
+            return (closure[source][target >>> 6] & 1L << target) != 0;
+        }
+        return search(source, target);
+    }
+
+    /**
+     * Tarjan's algorithm, without recursion.
+     *
+     * @return the amount of components.
+     */
+    private int findComponents() {
+        int size = index.size();
+        int[] order = new int[size];
+        int[] lowLink = new int[size];
+        Arrays.fill(order, NONE);
+        int[] tarjanStack = new int[size];
+        int tarjanDepth = 0;
+        boolean[] onStack = new boolean[size];
+        boolean[] selfLoops = new boolean[size];
+        // Each call stack entry is a flow and the number of its successors that have been looked at.
+        int[] callStack = new int[size];
+        int[] progress = new int[size];
+        int callDepth = 0;
+        int counter = 0;
+        int componentCounter = 0;
+        for (int root = 0; root < size; root++) {
+            if (order[root] != NONE) {
+                continue;
+            }
+            callStack[callDepth] = root;
+            progress[callDepth++] = 0;
+            order[root] = lowLink[root] = counter++;
+            tarjanStack[tarjanDepth++] = root;
+            onStack[root] = true;
+            while (callDepth > 0) {
+                int flow = callStack[callDepth - 1];
+                int step = progress[callDepth - 1]++;
+                if (step < 2) {
+                    int successor = step == 0 ? index.getNext(flow) : index.getMayBranchTo(flow);
+                    if (successor == NONE) {
+                        continue;
+                    }
+                    if (successor == flow) {
+                        selfLoops[flow] = true;
+                    }
+                    if (order[successor] == NONE) {
+                        order[successor] = lowLink[successor] = counter++;
+                        tarjanStack[tarjanDepth++] = successor;
+                        onStack[successor] = true;
+                        callStack[callDepth] = successor;
+                        progress[callDepth++] = 0;
+                    } else if (onStack[successor]) {
+                        lowLink[flow] = Math.min(lowLink[flow], order[successor]);
+                    }
+                    continue;
+                }
+                callDepth--;
+                if (callDepth > 0) {
+                    int caller = callStack[callDepth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[flow]);
+                }
+                if (lowLink[flow] == order[flow]) {
+                    boolean selfLoop = false;
+                    int member;
+                    int memberCount = 0;
+                    do {
+                        member = tarjanStack[--tarjanDepth];
+                        onStack[member] = false;
+                        components[member] = componentCounter;
+                        selfLoop |= selfLoops[member];
+                        memberCount++;
+                    } while (member != flow);
+                    cyclic[componentCounter] = selfLoop || memberCount > 1;
+                    componentCounter++;
+                }
+            }
+        }
+        return componentCounter;
+    }
+
+    /**
+     * Fills successorOffsets, and returns the successors of every component, without duplicates.
+     */
+    private int[] condense() {
+        int size = index.size();
+        int[] flowsByComponent = new int[size];
+        int[] componentOffsets = new int[componentCount + 1];
+        for (int i = 0; i < size; i++) {
+            componentOffsets[components[i] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        int[] filled = new int[componentCount];
+        for (int i = 0; i < size; i++) {
+            flowsByComponent[componentOffsets[components[i]] + filled[components[i]]++] = i;
+        }
+        int[] result = new int[size * 2];
+        int count = 0;
+        // The last component that was added as a successor of every component, to skip duplicates.
+        int[] lastSource = new int[componentCount];
+        Arrays.fill(lastSource, NONE);
+        for (int c = 0; c < componentCount; c++) {
+            successorOffsets[c] = count;
+            for (int m = componentOffsets[c]; m < componentOffsets[c + 1]; m++) {
+                int flow = flowsByComponent[m];
+                for (int step = 0; step < 2; step++) {
+                    int successor = step == 0 ? index.getNext(flow) : index.getMayBranchTo(flow);
+                    if (successor == NONE) {
+                        continue;
+                    }
+                    int target = components[successor];
+                    if (target != c && lastSource[target] != c) {
+                        lastSource[target] = c;
+                        result[count++] = target;
+                    }
+                }
+            }
+        }
+        successorOffsets[componentCount] = count;
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Components only reach components with a lower number, so their closures can be made in numbering order.
+     */
+    private long[][] close() {
+        int words = (componentCount + 63) >>> 6;
+        long[][] rows = new long[componentCount][];
+        for (int c = 0; c < componentCount; c++) {
+            long[] row = new long[words];
+            if (cyclic[c]) {
+                row[c >>> 6] |= 1L << c;
+            }
+            for (int s = successorOffsets[c]; s < successorOffsets[c + 1]; s++) {
+                int successor = successors[s];
+                row[successor >>> 6] |= 1L << successor;
+                long[] successorRow = rows[successor];
+                for (int w = 0; w < words; w++) {
+                    row[w] |= successorRow[w];
+                }
+            }
+            rows[c] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * A depth first search over the components from source,
+     * which doesn't enter components that are numbered lower than target, because they can't lead to it.
+     */
+    private synchronized boolean search(int source, int target) {
+        if (visited == null) {
+            visited = new long[(componentCount + 63) >>> 6];
+            stack = new int[componentCount];
+        } else {
+            Arrays.fill(visited, 0);
+        }
+        int depth = 0;
+        stack[depth++] = source;
+        visited[source >>> 6] |= 1L << source;
+        while (depth > 0) {
+            int component = stack[--depth];
+            for (int s = successorOffsets[component]; s < successorOffsets[component + 1]; s++) {
+                int successor = successors[s];
+                if (successor == target) {
+                    return true;
+                }
+                if (successor < target || (visited[successor >>> 6] & 1L << successor) != 0) {
+                    continue;
+                }
+                visited[successor >>> 6] |= 1L << successor;
+                stack[depth++] = successor;
+            }
+        }
+        return false;
+    }
+}
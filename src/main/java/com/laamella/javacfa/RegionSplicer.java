@@ -0,0 +1,219 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces the flows of one edited statement in an existing graph.
+ * <p>
+ * A statement can be analysed on its own when nothing in it jumps out of it,
+ * and when the graph enters its flows through one flow and leaves them to one flow.
+ * Then its new flows can be made with that one exit as the next flow,
+ * and the flows that entered the old flows can be pointed at the new ones.
+ * Only the statement is analysed. Finding its old flows and numbering the graph again are still single passes over all the flows,
+ * so a splice takes time linear in the size of the graph, but that is cheap compared to analysing the code.
+ * <p>
+ * The old flows are recognized by their nodes: nodes in the statement,
+ * and nodes that are not in the analysed code anymore, which can only have been replaced by the edit.
+ */
+class RegionSplicer {
+    private final ControlFlowAnalyser analyser;
+    private final Flow start;
+    private final Node code;
+    private final Node root;
+    private final FlowIndex index;
+    // The flows whose nodes are not in the analysed code anymore.
+    private final BitSet detached;
+
+    RegionSplicer(ControlFlowAnalyser analyser, Flow start) {
+        this.analyser = analyser;
+        this.start = requireNonNull(start);
+        this.code = start.getNode();
+        this.root = root(code);
+        this.index = FlowIndex.of(start);
+        detached = new BitSet(index.size());
+        for (int i = 1; i < index.size(); i++) {
+            if (root(index.get(i).getNode()) != root) {
+                detached.set(i);
+            }
+        }
+    }
+
+    Flow reanalyse(Node changed) {
+        if (changed != code && !code.isAncestorOf(changed)) {
+            throw new IllegalArgumentException("The changed node is not part of the analysed code.");
+        }
+        if (!isLocal()) {
+            return analyser.analyse(code);
+        }
+        for (Statement region = enclosingStatement(changed); region != null; region = enclosingStatement(region.getParentNode().orElse(null))) {
+            if (staysInside(region) && splice(region)) {
+                return start;
+            }
+        }
+        return analyser.analyse(code);
+    }
+
+    /**
+     * @return whether analysing a statement on its own gives the same flows and errors as analysing all the code.
+     * Folded conditions can make code unreachable far away from the edit,
+     * and budgets count flows, time and depth over all the code.
+     * Both report their errors on the start flow, which only a full analysis can get right.
+     */
+    private boolean isLocal() {
+        return !analyser.isFoldConstantConditions()
+                && analyser.getMaxFlows() == Integer.MAX_VALUE
+                && analyser.getMaxMillis() == Long.MAX_VALUE
+                && analyser.getMaxDepth() == Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return node or the statement around it, or null when that would be the analysed code or its body.
+     */
+    private Statement enclosingStatement(Node node) {
+        while (node != null && node != code && !(node instanceof Statement)) {
+            node = node.getParentNode().orElse(null);
+        }
+        if (node == null || node == code || node.getParentNode().orElse(null) == code) {
+            return null;
+        }
+        return (Statement) node;
+    }
+
+    /**
+     * @return whether every return, throw, break and continue in region has its target in region.
+     * Lambdas and classes are not analysed, so what is in them doesn't count.
+     */
+    private static boolean staysInside(Statement region) {
+        return staysInside(region, region);
+    }
+
+    private static boolean staysInside(Node node, Statement region) {
+        if (node instanceof LambdaExpr || node instanceof BodyDeclaration || node instanceof LocalClassDeclarationStmt) {
+            return true;
+        }
+        if (node instanceof ReturnStmt || node instanceof ThrowStmt) {
+            return false;
+        }
+        if (node instanceof BreakStmt) {
+            Optional<SimpleName> label = ((BreakStmt) node).getLabel();
+            if (!findTarget(node, region, label.map(SimpleName::asString).orElse(null), true)) {
+                return false;
+            }
+        }
+        if (node instanceof ContinueStmt) {
+            Optional<SimpleName> label = ((ContinueStmt) node).getLabel();
+            if (!findTarget(node, region, label.map(SimpleName::asString).orElse(null), false)) {
+                return false;
+            }
+        }
+        for (Node child : node.getChildNodes()) {
+            if (!staysInside(child, region)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the statement that a break or continue jumps out of, with this label or without one, is in region.
+     */
+    private static boolean findTarget(Node jump, Statement region, String label, boolean isBreak) {
+        if (jump == region) {
+            return false;
+        }
+        for (Node node = jump.getParentNode().orElse(null); node != null; node = node.getParentNode().orElse(null)) {
+            boolean target;
+            if (label != null) {
+                target = node instanceof LabeledStmt && ((LabeledStmt) node).getLabel().asString().equals(label);
+            } else {
+                target = node instanceof ForStmt || node instanceof ForEachStmt || node instanceof WhileStmt || node instanceof DoStmt
+                        || isBreak && node instanceof SwitchStmt;
+            }
+            if (target) {
+                return true;
+            }
+            if (node == region) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the flows of region when the graph enters them in one place and leaves them to one place.
+     *
+     * @return whether it did.
+     */
+    private boolean splice(Statement region) {
+        // The old flows of region: flows with nodes in region, or with nodes that were taken out of the analysed code.
+        Set<Node> regionNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        region.walk(regionNodes::add);
+        BitSet inside = (BitSet) detached.clone();
+        for (int i = 1; i < index.size(); i++) {
+            if (regionNodes.contains(index.get(i).getNode())) {
+                inside.set(i);
+            }
+        }
+        int entry = NONE;
+        // NONE is a valid exit: the end of the graph.
+        int exit = NONE;
+        boolean exitFound = false;
+        for (int i = inside.nextSetBit(0); i >= 0; i = inside.nextSetBit(i + 1)) {
+            for (int p = 0; p < index.getPredecessorCount(i); p++) {
+                if (!inside.get(index.getPredecessor(i, p))) {
+                    if (entry != NONE && entry != i) {
+                        return false;
+                    }
+                    entry = i;
+                }
+            }
+            for (int step = 0; step < 2; step++) {
+                int successor = step == 0 ? index.getNext(i) : index.getMayBranchTo(i);
+                if (step == 1 && successor == NONE || successor != NONE && inside.get(successor)) {
+                    continue;
+                }
+                if (exitFound && exit != successor) {
+                    return false;
+                }
+                exit = successor;
+                exitFound = true;
+            }
+        }
+        if (entry == NONE) {
+            return false;
+        }
+        Flow oldEntry = index.get(entry);
+        Flow newEntry = analyser.analyseRegion(region, exit == NONE ? null : index.get(exit));
+        for (int p = 0; p < index.getPredecessorCount(entry); p++) {
+            Flow predecessor = index.get(index.getPredecessor(entry, p));
+            if (predecessor.getNext() == oldEntry) {
+                predecessor.setNext(newEntry);
+            }
+            if (predecessor.getMayBranchTo() == oldEntry) {
+                predecessor.setMayBranchTo(newEntry);
+            }
+        }
+        FlowIndex.assign(start);
+        return true;
+    }
+
+    private static Node root(Node node) {
+        while (node.getParentNode().isPresent()) {
+            node = node.getParentNode().get();
+        }
+        return node;
+    }
+}
@@ -0,0 +1,541 @@
+package com.laamella.javacfa;
+
+import io.vavr.collection.List;
+
+import java.util.Arrays;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The static single assignment form of the local variables in a control flow graph.
+ * <p>
+ * Every write to a variable creates a new version of it, numbered from 1 per variable.
+ * Version 0 means that no write reaches the read, like for a variable that is declared without initializer.
+ * Where versions from different paths meet, a phi function creates a new version from them.
+ * Phi functions are placed on the iterated dominance frontiers of the writes,
+ * with dominators computed by the Cooper-Harvey-Kennedy algorithm.
+ * <p>
+ * Parameters are written by the start flow.
+ * Everything is kept in arrays, per flow by its number in the FlowIndex.
+ */
+public class SsaForm {
+    private final FlowIndex index;
+    private final List<String> variables;
+    private final int[] immediateDominators;
+    // The reads and writes of every flow, in the order in which they happen.
+    private final int[] accessOffsets;
+    private final int[] accessVariables;
+    private final int[] accessVersions;
+    private final boolean[] accessWrites;
+    // The phi functions at the start of every flow, with an operand for every predecessor.
+    private final int[] phiOffsets;
+    private final int[] phiVariables;
+    private final int[] phiVersions;
+    private final int[] phiOperandOffsets;
+    private final int[] phiOperands;
+    // The flow that creates every version of every variable.
+    private final int[] versionOffsets;
+    private final int[] versionFlows;
+    private final boolean[] versionPhis;
+
+    private SsaForm(Builder builder) {
+        index = builder.index;
+        variables = builder.variables;
+        immediateDominators = builder.immediateDominators;
+        accessOffsets = builder.accessOffsets;
+        accessVariables = builder.accessVariables;
+        accessVersions = builder.accessVersions;
+        accessWrites = builder.accessWrites;
+        phiOffsets = builder.phiOffsets;
+        phiVariables = builder.phiVariables;
+        phiVersions = builder.phiVersions;
+        phiOperandOffsets = builder.phiOperandOffsets;
+        phiOperands = builder.phiOperands;
+        versionOffsets = builder.versionOffsets;
+        versionFlows = builder.versionFlows;
+        versionPhis = builder.versionPhis;
+    }
+
+    /**
+     * @return the SSA form of the graph starting at start.
+     */
+    public static SsaForm of(Flow start) {
+        return of(FlowIndex.of(requireNonNull(start)));
+    }
+
+    /**
+     * @return the SSA form of an indexed graph.
+     */
+    public static SsaForm of(FlowIndex index) {
+        return new Builder(index).build();
+    }
+
+    /**
+     * @return the index that the flow numbers in this form refer to.
+     */
+    public FlowIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the names of the variables, the position being the variable number.
+     * Variables from different scopes can have the same name.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the highest version of a variable, which is also the amount of writes and phi functions for it.
+     */
+    public int getVersionCount(int variable) {
+        return versionOffsets[variable + 1] - versionOffsets[variable];
+    }
+
+    /**
+     * @return the number of the flow that creates a version of a variable, or NONE for version 0.
+     */
+    public int getDefinition(int variable, int version) {
+        return version == 0 ? NONE : versionFlows[versionOffsets[variable] + version - 1];
+    }
+
+    /**
+     * @return whether a version of a variable is created by a phi function.
+     */
+    public boolean isPhi(int variable, int version) {
+        return version != 0 && versionPhis[versionOffsets[variable] + version - 1];
+    }
+
+    /**
+     * @return the immediate dominator of a flow, or NONE for the start flow.
+     */
+    public int getImmediateDominator(int flow) {
+        return flow == 0 ? NONE : immediateDominators[flow];
+    }
+
+    /**
+     * @return the amount of reads and writes of variables in a flow.
+     */
+    public int getAccessCount(int flow) {
+        return accessOffsets[flow + 1] - accessOffsets[flow];
+    }
+
+    public int getAccessVariable(int flow, int i) {
+        return accessVariables[accessOffsets[flow] + i];
+    }
+
+    /**
+     * @return the version that is read, or the version that is created by a write.
+     */
+    public int getAccessVersion(int flow, int i) {
+        return accessVersions[accessOffsets[flow] + i];
+    }
+
+    public boolean isWrite(int flow, int i) {
+        return accessWrites[accessOffsets[flow] + i];
+    }
+
+    /**
+     * @return the amount of phi functions at the start of a flow.
+     */
+    public int getPhiCount(int flow) {
+        return phiOffsets[flow + 1] - phiOffsets[flow];
+    }
+
+    public int getPhiVariable(int flow, int i) {
+        return phiVariables[phiOffsets[flow] + i];
+    }
+
+    /**
+     * @return the version that a phi function creates.
+     */
+    public int getPhiVersion(int flow, int i) {
+        return phiVersions[phiOffsets[flow] + i];
+    }
+
+    /**
+     * @return the version that a phi function takes when coming from a predecessor,
+     * the predecessor being given by its position as in FlowIndex.getPredecessor.
+     */
+    public int getPhiOperand(int flow, int i, int predecessor) {
+        return phiOperands[phiOperandOffsets[phiOffsets[flow] + i] + predecessor];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (int flow = 0; flow < index.size(); flow++) {
+            List<String> parts = List.empty();
+            for (int i = 0; i < getPhiCount(flow); i++) {
+                int variable = getPhiVariable(flow, i);
+                StringBuilder phi = new StringBuilder(version(variable, getPhiVersion(flow, i))).append(" = phi(");
+                for (int p = 0; p < index.getPredecessorCount(flow); p++) {
+                    phi.append(p == 0 ? "" : ", ").append(version(variable, getPhiOperand(flow, i, p)));
+                }
+                parts = parts.append(phi.append(")").toString());
+            }
+            for (int i = 0; i < getAccessCount(flow); i++) {
+                parts = parts.append((isWrite(flow, i) ? "def " : "use ") + version(getAccessVariable(flow, i), getAccessVersion(flow, i)));
+            }
+            if (parts.nonEmpty()) {
+                Flow f = index.get(flow);
+                output.append(f.getNode().getRange().map(range -> "" + range.begin.line).orElse("?"))
+                        .append(" ").append(f.getType())
+                        .append(parts.mkString(": ", ", ", "\n"));
+            }
+        }
+        return output.toString();
+    }
+
+    private String version(int variable, int version) {
+        return variables.get(variable) + version;
+    }
+
+    private static class Builder {
+        private final FlowIndex index;
+        private final int size;
+        private final List<String> variables;
+        private final int variableCount;
+        private int[] immediateDominators;
+        // For every edge, by flow * 2 for next and flow * 2 + 1 for mayBranchTo, its position among the predecessors of its target.
+        private int[] predecessorPositions;
+        private int[] accessOffsets;
+        private int[] accessVariables;
+        private int[] accessVersions;
+        private boolean[] accessWrites;
+        private int[] phiOffsets;
+        private int[] phiVariables;
+        private int[] phiVersions;
+        private int[] phiOperandOffsets;
+        private int[] phiOperands;
+        private int[] versionOffsets;
+        private int[] versionFlows;
+        private boolean[] versionPhis;
+
+        private final VariableAccesses variableAccesses;
+
+        Builder(FlowIndex index) {
+            this.index = index;
+            size = index.size();
+            variableAccesses = new VariableAccesses(index.get(0));
+            variables = List.ofAll(variableAccesses.getVariables());
+            variableCount = variables.size();
+        }
+
+        SsaForm build() {
+            findPredecessorPositions();
+            findDominators();
+            collectAccesses();
+            placePhis();
+            rename();
+            return new SsaForm(this);
+        }
+
+        /**
+         * Finds the position of every edge among the predecessors of its target.
+         */
+        private void findPredecessorPositions() {
+            predecessorPositions = new int[size * 2];
+            for (int flow = 0; flow < size; flow++) {
+                for (int p = 0; p < index.getPredecessorCount(flow); p++) {
+                    int predecessor = index.getPredecessor(flow, p);
+                    // When both edges of the predecessor lead here, it is listed twice, next first.
+                    boolean second = p > 0 && index.getPredecessor(flow, p - 1) == predecessor;
+                    predecessorPositions[index.getNext(predecessor) == flow && !second ? predecessor * 2 : predecessor * 2 + 1] = p;
+                }
+            }
+        }
+
+        private int[] successors(int flow) {
+            return new int[]{index.getNext(flow), index.getMayBranchTo(flow)};
+        }
+
+        /**
+         * Cooper, Harvey and Kennedy, "A Simple, Fast Dominance Algorithm".
+         * The flow numbers are in reverse postorder already, so a lower number is closer to the start.
+         */
+        private void findDominators() {
+            immediateDominators = new int[size];
+            Arrays.fill(immediateDominators, NONE);
+            immediateDominators[0] = 0;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int flow = 1; flow < size; flow++) {
+                    int dominator = NONE;
+                    for (int p = 0; p < index.getPredecessorCount(flow); p++) {
+                        int predecessor = index.getPredecessor(flow, p);
+                        if (immediateDominators[predecessor] == NONE) {
+                            continue;
+                        }
+                        dominator = dominator == NONE ? predecessor : intersect(predecessor, dominator);
+                    }
+                    if (immediateDominators[flow] != dominator) {
+                        immediateDominators[flow] = dominator;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        private int intersect(int a, int b) {
+            while (a != b) {
+                while (a > b) {
+                    a = immediateDominators[a];
+                }
+                while (b > a) {
+                    b = immediateDominators[b];
+                }
+            }
+            return a;
+        }
+
+        private void collectAccesses() {
+            accessOffsets = new int[size + 1];
+            IntList collectedVariables = new IntList();
+            IntList collectedWrites = new IntList();
+            for (int flow = 0; flow < size; flow++) {
+                accessOffsets[flow] = collectedVariables.size;
+                if (flow == 0) {
+                    for (int parameter : variableAccesses.getParameters(index.get(0))) {
+                        collectedVariables.add(parameter);
+                        collectedWrites.add(1);
+                    }
+                }
+                variableAccesses.collect(index.get(flow), (variable, write) -> {
+                    collectedVariables.add(variable);
+                    collectedWrites.add(write ? 1 : 0);
+                });
+            }
+            accessOffsets[size] = collectedVariables.size;
+            accessVariables = collectedVariables.toArray();
+            accessVersions = new int[accessVariables.length];
+            accessWrites = new boolean[accessVariables.length];
+            for (int i = 0; i < accessWrites.length; i++) {
+                accessWrites[i] = collectedWrites.values[i] == 1;
+            }
+        }
+
+        /**
+         * Places phi functions on the iterated dominance frontier of the writes of every variable.
+         */
+        private void placePhis() {
+            int[][] frontiers = dominanceFrontiers();
+            // Per variable, the flows that have a phi function for it.
+            boolean[][] hasPhi = new boolean[variableCount][];
+            int[] worklist = new int[size];
+            boolean[] queued = new boolean[size];
+            int phiCount = 0;
+            for (int variable = 0; variable < variableCount; variable++) {
+                int worklistSize = 0;
+                Arrays.fill(queued, false);
+                for (int flow = 0; flow < size; flow++) {
+                    for (int a = accessOffsets[flow]; a < accessOffsets[flow + 1]; a++) {
+                        if (accessWrites[a] && accessVariables[a] == variable && !queued[flow]) {
+                            queued[flow] = true;
+                            worklist[worklistSize++] = flow;
+                        }
+                    }
+                }
+                while (worklistSize > 0) {
+                    int flow = worklist[--worklistSize];
+                    for (int frontier : frontiers[flow]) {
+                        if (hasPhi[variable] == null) {
+                            hasPhi[variable] = new boolean[size];
+                        }
+                        if (!hasPhi[variable][frontier]) {
+                            hasPhi[variable][frontier] = true;
+                            phiCount++;
+                            if (!queued[frontier]) {
+                                queued[frontier] = true;
+                                worklist[worklistSize++] = frontier;
+                            }
+                        }
+                    }
+                }
+            }
+            phiOffsets = new int[size + 1];
+            phiVariables = new int[phiCount];
+            phiVersions = new int[phiCount];
+            phiOperandOffsets = new int[phiCount];
+            int operandCount = 0;
+            int phi = 0;
+            for (int flow = 0; flow < size; flow++) {
+                phiOffsets[flow] = phi;
+                for (int variable = 0; variable < variableCount; variable++) {
+                    if (hasPhi[variable] != null && hasPhi[variable][flow]) {
+                        phiVariables[phi] = variable;
+                        phiOperandOffsets[phi++] = operandCount;
+                        operandCount += index.getPredecessorCount(flow);
+                    }
+                }
+            }
+            phiOffsets[size] = phi;
+            phiOperands = new int[operandCount];
+        }
+
+        /**
+         * Cytron et al.: a flow is in the frontier of every flow between its predecessors and its immediate dominator.
+         */
+        private int[][] dominanceFrontiers() {
+            IntList[] frontiers = new IntList[size];
+            for (int flow = 0; flow < size; flow++) {
+                if (index.getPredecessorCount(flow) < 2) {
+                    continue;
+                }
+                for (int p = 0; p < index.getPredecessorCount(flow); p++) {
+                    for (int runner = index.getPredecessor(flow, p); runner != immediateDominators[flow]; runner = immediateDominators[runner]) {
+                        if (frontiers[runner] == null) {
+                            frontiers[runner] = new IntList();
+                        }
+                        if (!frontiers[runner].contains(flow)) {
+                            frontiers[runner].add(flow);
+                        }
+                    }
+                }
+            }
+            int[][] result = new int[size][];
+            for (int flow = 0; flow < size; flow++) {
+                result[flow] = frontiers[flow] == null ? new int[0] : frontiers[flow].toArray();
+            }
+            return result;
+        }
+
+        /**
+         * Numbers the versions by walking the dominator tree,
+         * keeping a stack with the current version of every variable.
+         */
+        private void rename() {
+            int[] childOffsets = new int[size + 1];
+            for (int flow = 1; flow < size; flow++) {
+                childOffsets[immediateDominators[flow] + 1]++;
+            }
+            for (int flow = 0; flow < size; flow++) {
+                childOffsets[flow + 1] += childOffsets[flow];
+            }
+            int[] children = new int[size];
+            int[] filled = new int[size];
+            for (int flow = 1; flow < size; flow++) {
+                int dominator = immediateDominators[flow];
+                children[childOffsets[dominator] + filled[dominator]++] = flow;
+            }
+
+            IntList[] versionStacks = new IntList[variableCount];
+            for (int variable = 0; variable < variableCount; variable++) {
+                versionStacks[variable] = new IntList();
+                versionStacks[variable].add(0);
+            }
+            int[] versionCounts = new int[variableCount];
+            IntList createdVariables = new IntList();
+            IntList createdFlows = new IntList();
+            IntList createdPhis = new IntList();
+            // The variables that got a new version, so they can be popped when leaving a subtree.
+            IntList pushed = new IntList();
+
+            int[] stack = new int[size];
+            int[] progress = new int[size];
+            int[] pushedMarks = new int[size];
+            int depth = 0;
+            stack[depth] = 0;
+            progress[depth++] = -1;
+            while (depth > 0) {
+                int flow = stack[depth - 1];
+                int step = progress[depth - 1]++;
+                if (step == -1) {
+                    pushedMarks[depth - 1] = pushed.size;
+                    for (int phi = phiOffsets[flow]; phi < phiOffsets[flow + 1]; phi++) {
+                        int variable = phiVariables[phi];
+                        phiVersions[phi] = ++versionCounts[variable];
+                        createdVariables.add(variable);
+                        createdFlows.add(flow);
+                        createdPhis.add(1);
+                        versionStacks[variable].add(phiVersions[phi]);
+                        pushed.add(variable);
+                    }
+                    for (int a = accessOffsets[flow]; a < accessOffsets[flow + 1]; a++) {
+                        int variable = accessVariables[a];
+                        if (accessWrites[a]) {
+                            accessVersions[a] = ++versionCounts[variable];
+                            createdVariables.add(variable);
+                            createdFlows.add(flow);
+                            createdPhis.add(0);
+                            versionStacks[variable].add(accessVersions[a]);
+                            pushed.add(variable);
+                        } else {
+                            accessVersions[a] = versionStacks[variable].last();
+                        }
+                    }
+                    int[] successors = successors(flow);
+                    for (int s = 0; s < 2; s++) {
+                        int successor = successors[s];
+                        if (successor == NONE) {
+                            continue;
+                        }
+                        int position = predecessorPositions[flow * 2 + s];
+                        for (int phi = phiOffsets[successor]; phi < phiOffsets[successor + 1]; phi++) {
+                            phiOperands[phiOperandOffsets[phi] + position] = versionStacks[phiVariables[phi]].last();
+                        }
+                    }
+                    continue;
+                }
+                int child = childOffsets[flow] + step;
+                if (child < childOffsets[flow + 1]) {
+                    stack[depth] = children[child];
+                    progress[depth++] = -1;
+                    continue;
+                }
+                while (pushed.size > pushedMarks[depth - 1]) {
+                    versionStacks[pushed.values[--pushed.size]].size--;
+                }
+                depth--;
+            }
+
+            versionOffsets = new int[variableCount + 1];
+            for (int variable = 0; variable < variableCount; variable++) {
+                versionOffsets[variable + 1] = versionOffsets[variable] + versionCounts[variable];
+            }
+            versionFlows = new int[createdFlows.size];
+            versionPhis = new boolean[createdFlows.size];
+            int[] filledVersions = new int[variableCount];
+            for (int i = 0; i < createdFlows.size; i++) {
+                int variable = createdVariables.values[i];
+                int position = versionOffsets[variable] + filledVersions[variable]++;
+                versionFlows[position] = createdFlows.values[i];
+                versionPhis[position] = createdPhis.values[i] == 1;
+            }
+        }
+    }
+
+    /**
+     * A growable array of ints, to avoid boxing.
+     */
+    private static class IntList {
+        private int[] values = new int[8];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.UnionType;
+import io.vavr.collection.List;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the catch clause for a throw statement by comparing type names, without the symbol solver.
+ * <p>
+ * Names are qualified with the imports and the types declared in the compilation unit.
+ * Superclasses come from those declarations and from a table of well known JDK exceptions.
+ * When that is not enough to be sure, the match is ambiguous.
+ */
+class SyntacticThrowMatcher {
+    private static final String THROWABLE = "java.lang.Throwable";
+    private static final Map<String, String> KNOWN_SUPERCLASSES = new HashMap<>();
+
+    static {
+        known("java.lang.Exception", THROWABLE);
+        known("java.lang.Error", THROWABLE);
+        known("java.lang.RuntimeException", "java.lang.Exception");
+        known("java.lang.InterruptedException", "java.lang.Exception");
+        known("java.lang.CloneNotSupportedException", "java.lang.Exception");
+        known("java.lang.ReflectiveOperationException", "java.lang.Exception");
+        known("java.lang.ClassNotFoundException", "java.lang.ReflectiveOperationException");
+        known("java.lang.NoSuchMethodException", "java.lang.ReflectiveOperationException");
+        known("java.lang.NoSuchFieldException", "java.lang.ReflectiveOperationException");
+        known("java.lang.IllegalAccessException", "java.lang.ReflectiveOperationException");
+        known("java.lang.InstantiationException", "java.lang.ReflectiveOperationException");
+        known("java.lang.IllegalArgumentException", "java.lang.RuntimeException");
+        known("java.lang.NumberFormatException", "java.lang.IllegalArgumentException");
+        known("java.lang.IllegalStateException", "java.lang.RuntimeException");
+        known("java.lang.NullPointerException", "java.lang.RuntimeException");
+        known("java.lang.UnsupportedOperationException", "java.lang.RuntimeException");
+        known("java.lang.ArithmeticException", "java.lang.RuntimeException");
+        known("java.lang.ClassCastException", "java.lang.RuntimeException");
+        known("java.lang.ArrayStoreException", "java.lang.RuntimeException");
+        known("java.lang.NegativeArraySizeException", "java.lang.RuntimeException");
+        known("java.lang.SecurityException", "java.lang.RuntimeException");
+        known("java.lang.IndexOutOfBoundsException", "java.lang.RuntimeException");
+        known("java.lang.ArrayIndexOutOfBoundsException", "java.lang.IndexOutOfBoundsException");
+        known("java.lang.StringIndexOutOfBoundsException", "java.lang.IndexOutOfBoundsException");
+        known("java.lang.AssertionError", "java.lang.Error");
+        known("java.lang.LinkageError", "java.lang.Error");
+        known("java.lang.ExceptionInInitializerError", "java.lang.LinkageError");
+        known("java.lang.VirtualMachineError", "java.lang.Error");
+        known("java.lang.OutOfMemoryError", "java.lang.VirtualMachineError");
+        known("java.lang.StackOverflowError", "java.lang.VirtualMachineError");
+        known("java.io.IOException", "java.lang.Exception");
+        known("java.io.UncheckedIOException", "java.lang.RuntimeException");
+        known("java.io.FileNotFoundException", "java.io.IOException");
+        known("java.io.EOFException", "java.io.IOException");
+        known("java.io.UnsupportedEncodingException", "java.io.IOException");
+        known("java.io.InterruptedIOException", "java.io.IOException");
+        known("java.nio.file.FileSystemException", "java.io.IOException");
+        known("java.nio.file.NoSuchFileException", "java.nio.file.FileSystemException");
+        known("java.nio.file.FileAlreadyExistsException", "java.nio.file.FileSystemException");
+        known("java.nio.file.AccessDeniedException", "java.nio.file.FileSystemException");
+        known("java.net.MalformedURLException", "java.io.IOException");
+        known("java.net.UnknownHostException", "java.io.IOException");
+        known("java.net.URISyntaxException", "java.lang.Exception");
+        known("java.util.NoSuchElementException", "java.lang.RuntimeException");
+        known("java.util.ConcurrentModificationException", "java.lang.RuntimeException");
+        known("java.util.concurrent.ExecutionException", "java.lang.Exception");
+        known("java.util.concurrent.TimeoutException", "java.lang.Exception");
+        known("java.util.concurrent.CancellationException", "java.lang.IllegalStateException");
+        known("java.util.concurrent.CompletionException", "java.lang.RuntimeException");
+        known("java.sql.SQLException", "java.lang.Exception");
+        known("java.text.ParseException", "java.lang.Exception");
+    }
+
+    private static void known(String type, String superclass) {
+        KNOWN_SUPERCLASSES.put(type, superclass);
+    }
+
+    /**
+     * The outcome of matching: either decided, with the position of the catch clause or -1 when nothing catches the throw,
+     * or ambiguous.
+     */
+    static class Match {
+        static final Match AMBIGUOUS = new Match(false, -1);
+
+        private final boolean decided;
+        private final int catchClause;
+
+        private Match(boolean decided, int catchClause) {
+            this.decided = decided;
+            this.catchClause = catchClause;
+        }
+
+        boolean isDecided() {
+            return decided;
+        }
+
+        int getCatchClause() {
+            return catchClause;
+        }
+    }
+
+    private final Map<String, String> declaredTypes = new HashMap<>();
+    private final Map<String, ClassOrInterfaceType> declaredSuperclasses = new HashMap<>();
+    private final Map<String, String> singleTypeImports = new HashMap<>();
+    private List<String> wildcardImports = List.empty();
+
+    /**
+     * Reads the imports and type declarations of compilationUnit once, for all throw statements in it.
+     *
+     * @param compilationUnit null when the throw statements are not in a compilation unit.
+     */
+    SyntacticThrowMatcher(CompilationUnit compilationUnit) {
+        if (compilationUnit == null) {
+            return;
+        }
+        String packagePrefix = compilationUnit.getPackageDeclaration().map(p -> p.getNameAsString() + ".").orElse("");
+        for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+            if (importDeclaration.isStatic()) {
+                continue;
+            }
+            String name = importDeclaration.getNameAsString();
+            if (importDeclaration.isAsterisk()) {
+                wildcardImports = wildcardImports.append(name);
+            } else {
+                singleTypeImports.put(name.substring(name.lastIndexOf('.') + 1), name);
+            }
+        }
+        compilationUnit.getTypes().forEach(type -> declare(packagePrefix, type));
+    }
+
+    private void declare(String prefix, TypeDeclaration<?> type) {
+        String qualifiedName = prefix + type.getNameAsString();
+        declaredTypes.putIfAbsent(type.getNameAsString(), qualifiedName);
+        if (type instanceof ClassOrInterfaceDeclaration) {
+            ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) type;
+            if (!declaration.isInterface() && declaration.getExtendedTypes().isNonEmpty()) {
+                declaredSuperclasses.put(qualifiedName, declaration.getExtendedTypes(0));
+            }
+        }
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member instanceof TypeDeclaration) {
+                declare(qualifiedName + ".", (TypeDeclaration<?>) member);
+            }
+        }
+    }
+
+    /**
+     * @param catchTypes the types of the catch clauses around the throw statement, outermost first,
+     *                   of which only the first catchCount are used.
+     *                   The catch clause in the match counts from the innermost one.
+     */
+    Match match(ThrowStmt throwStmt, Type[] catchTypes, int catchCount) {
+        if (catchCount == 0) {
+            return new Match(true, -1);
+        }
+        ClassOrInterfaceType thrownType = thrownType(throwStmt);
+        if (thrownType == null) {
+            return Match.AMBIGUOUS;
+        }
+        return match(thrownType, throwStmt.getExpression() instanceof ObjectCreationExpr, catchTypes, catchCount);
+    }
+
+    /**
+     * @param exact whether thrownType is the type of the exception itself.
+     *              A rethrown catch clause parameter only has its declared type, and can hold any subtype of it.
+     */
+    private Match match(ClassOrInterfaceType thrownType, boolean exact, Type[] catchTypes, int catchCount) {
+        String thrownName = qualify(thrownType);
+        List<String> supertypes = supertypes(thrownName);
+        boolean complete = supertypes.contains(THROWABLE);
+        for (int catchClause = 0; catchClause < catchCount; catchClause++) {
+            for (ClassOrInterfaceType caughtType : caughtTypes(catchTypes[catchCount - 1 - catchClause])) {
+                String caughtName = qualify(caughtType);
+                if (caughtName == null) {
+                    if (caughtType.getNameAsString().equals(thrownType.getNameAsString())) {
+                        return new Match(true, catchClause);
+                    }
+                    return Match.AMBIGUOUS;
+                }
+                if (supertypes.contains(caughtName) || caughtName.equals(THROWABLE)) {
+                    return new Match(true, catchClause);
+                }
+                if (!complete) {
+                    return Match.AMBIGUOUS;
+                }
+                if (!exact) {
+                    // Classes have one superclass, so a subtype of both types means that one is a subtype of the other.
+                    List<String> caughtSupertypes = supertypes(caughtName);
+                    if (!caughtSupertypes.contains(THROWABLE) || caughtSupertypes.contains(thrownName)) {
+                        return Match.AMBIGUOUS;
+                    }
+                }
+            }
+        }
+        return new Match(true, -1);
+    }
+
+    /**
+     * @return the type and its superclasses until Throwable, or until we don't know the superclass.
+     */
+    private List<String> supertypes(String typeName) {
+        List<String> supertypes = List.empty();
+        for (String type = typeName; type != null && !supertypes.contains(type); type = superclass(type)) {
+            supertypes = supertypes.append(type);
+        }
+        return supertypes;
+    }
+
+    /**
+     * @return the type of a new exception, or of a rethrown catch clause parameter, or null if we can't tell.
+     */
+    private static ClassOrInterfaceType thrownType(ThrowStmt throwStmt) {
+        if (throwStmt.getExpression() instanceof ObjectCreationExpr) {
+            return ((ObjectCreationExpr) throwStmt.getExpression()).getType();
+        }
+        if (throwStmt.getExpression() instanceof NameExpr) {
+            String name = ((NameExpr) throwStmt.getExpression()).getNameAsString();
+            for (Node node = throwStmt; node != null; node = node.getParentNode().orElse(null)) {
+                if (node instanceof CatchClause && ((CatchClause) node).getParameter().getNameAsString().equals(name)) {
+                    Type type = ((CatchClause) node).getParameter().getType();
+                    return type instanceof ClassOrInterfaceType ? (ClassOrInterfaceType) type : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<ClassOrInterfaceType> caughtTypes(Type type) {
+        if (type instanceof UnionType) {
+            return List.ofAll(((UnionType) type).getElements()).flatMap(SyntacticThrowMatcher::caughtTypes);
+        }
+        if (type instanceof ClassOrInterfaceType) {
+            return List.of((ClassOrInterfaceType) type);
+        }
+        return List.empty();
+    }
+
+    /**
+     * @return the fully qualified name of a type, or null if we can't tell.
+     */
+    private String qualify(ClassOrInterfaceType type) {
+        String name = type.getNameWithScope();
+        int dot = name.indexOf('.');
+        if (dot >= 0) {
+            // Either a type nested in a type we know, or a qualified name.
+            String outer = qualifySimpleName(name.substring(0, dot));
+            return outer == null ? name : outer + name.substring(dot);
+        }
+        return qualifySimpleName(name);
+    }
+
+    private String qualifySimpleName(String name) {
+        if (declaredTypes.containsKey(name)) {
+            return declaredTypes.get(name);
+        }
+        if (singleTypeImports.containsKey(name)) {
+            return singleTypeImports.get(name);
+        }
+        if (KNOWN_SUPERCLASSES.containsKey("java.lang." + name) || ("java.lang." + name).equals(THROWABLE)) {
+            return "java.lang." + name;
+        }
+        return wildcardImports
+                .map(packageName -> packageName + "." + name)
+                .find(KNOWN_SUPERCLASSES::containsKey)
+                .getOrNull();
+    }
+
+    private String superclass(String type) {
+        if (KNOWN_SUPERCLASSES.containsKey(type)) {
+            return KNOWN_SUPERCLASSES.get(type);
+        }
+        ClassOrInterfaceType superclass = declaredSuperclasses.get(type);
+        return superclass == null ? null : qualify(superclass);
+    }
+}
@@ -0,0 +1,22 @@
+package com.laamella.javacfa;
+
+/**
+ * How the analyser finds the catch clause that catches a throw statement.
+ */
+public enum ThrowResolution {
+    /**
+     * Resolve the thrown type and the catch types with the symbol solver.
+     * Every throw statement gets an error when no symbol solver is configured.
+     */
+    SYMBOL_SOLVER,
+    /**
+     * Match thrown and caught types by name, using the imports,
+     * the types declared in the compilation unit, and a table of well known JDK exceptions.
+     * Throw statements that can not be matched this way get an error.
+     */
+    SYNTACTIC,
+    /**
+     * Like SYNTACTIC, but use the symbol solver for the throw statements that can not be matched by name.
+     */
+    SYNTACTIC_WITH_FALLBACK
+}
@@ -0,0 +1,355 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithStatements;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds which local variables a flow reads and writes, in the order in which that happens.
+ * <p>
+ * Only parameters and variables declared in the analysed code are tracked.
+ * A variable is identified by its declaration, which is found for a name by walking up through the scopes around it,
+ * so variables with the same name in different scopes are different variables, and names that are not declared
+ * in the analysed code, like fields, are not tracked.
+ * The bodies of lambdas and local or anonymous classes are skipped.
+ */
+class VariableAccesses {
+    private final Node root;
+    // Parameters and variable declarators, by identity since nodes with the same text are equal.
+    private final Map<Node, Integer> variables = new IdentityHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @param start the start flow of the graph, which holds the analysed node.
+     */
+    VariableAccesses(Flow start) {
+        root = start.getNode();
+        if (root instanceof CallableDeclaration) {
+            for (Parameter parameter : ((CallableDeclaration<?>) root).getParameters()) {
+                declare(parameter, parameter.getNameAsString());
+            }
+        }
+        declareIn(root);
+    }
+
+    private void declareIn(Node node) {
+        if (node instanceof LambdaExpr || node instanceof TypeDeclaration || node instanceof LocalClassDeclarationStmt) {
+            return;
+        }
+        if (node instanceof ObjectCreationExpr && ((ObjectCreationExpr) node).getAnonymousClassBody().isPresent()) {
+            ObjectCreationExpr creation = (ObjectCreationExpr) node;
+            creation.getScope().ifPresent(this::declareIn);
+            creation.getArguments().forEach(this::declareIn);
+            return;
+        }
+        if (node instanceof VariableDeclarator) {
+            declare(node, ((VariableDeclarator) node).getNameAsString());
+        } else if (node instanceof CatchClause) {
+            Parameter parameter = ((CatchClause) node).getParameter();
+            declare(parameter, parameter.getNameAsString());
+        }
+        for (Node child : node.getChildNodes()) {
+            declareIn(child);
+        }
+    }
+
+    private void declare(Node declaration, String name) {
+        variables.put(declaration, names.size());
+        names.add(name);
+    }
+
+    /**
+     * @return the names of all tracked variables, the position being the variable number.
+     * Variables in different scopes can have the same name.
+     */
+    List<String> getVariables() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * @return the parameters of the analysed code, which are defined at the start flow.
+     */
+    List<Integer> getParameters(Flow start) {
+        List<Integer> parameters = new ArrayList<>();
+        if (start.getNode() instanceof CallableDeclaration) {
+            for (Parameter parameter : ((CallableDeclaration<?>) start.getNode()).getParameters()) {
+                parameters.add(variables.get(parameter));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Reports the accesses of a flow to the consumer:
+     * a variable number, and true for a write or false for a read.
+     */
+    void collect(Flow flow, Consumer consumer) {
+        Node node = flow.getNode();
+        switch (flow.getType()) {
+            case START:
+                return;
+            case CHOICE:
+                if (node instanceof ForEachStmt) {
+                    ForEachStmt forEachStmt = (ForEachStmt) node;
+                    visit(forEachStmt.getIterable(), consumer);
+                    forEachStmt.getVariable().getVariables().forEach(v -> define(variables.get(v), consumer));
+                } else if (node instanceof SwitchEntry) {
+                    node.getParentNode()
+                            .filter(parent -> parent instanceof SwitchStmt)
+                            .ifPresent(parent -> visit(((SwitchStmt) parent).getSelector(), consumer));
+                } else if (flow.getCondition() != null) {
+                    visit(flow.getCondition(), consumer);
+                }
+                return;
+            default:
+                if (isConditional(node)) {
+                    // A folded constant condition, which stands for the condition and not for the whole statement.
+                    if (flow.getCondition() != null) {
+                        visit(flow.getCondition(), consumer);
+                    }
+                } else if (node instanceof ReturnStmt) {
+                    ((ReturnStmt) node).getExpression().ifPresent(e -> visit(e, consumer));
+                } else if (node instanceof ThrowStmt) {
+                    visit(((ThrowStmt) node).getExpression(), consumer);
+                } else {
+                    visit(node, consumer);
+                }
+        }
+        if (flow.getNext() != null) {
+            defineCaughtException(node, flow.getNext(), consumer);
+        }
+        if (flow.getMayBranchTo() != null) {
+            defineCaughtException(node, flow.getMayBranchTo(), consumer);
+        }
+    }
+
+    /**
+     * A flow from outside a catch clause to the inside can only be an exception being caught,
+     * which writes the catch clause parameter.
+     */
+    private void defineCaughtException(Node node, Flow target, Consumer consumer) {
+        Node catchClause = target.getNode();
+        while (catchClause != null && catchClause != root && !(catchClause instanceof CatchClause)) {
+            catchClause = catchClause.getParentNode().orElse(null);
+        }
+        if (!(catchClause instanceof CatchClause)) {
+            return;
+        }
+        for (Node ancestor = node; ancestor != null; ancestor = ancestor.getParentNode().orElse(null)) {
+            if (ancestor == catchClause) {
+                return;
+            }
+        }
+        define(variables.get(((CatchClause) catchClause).getParameter()), consumer);
+    }
+
+    private void visit(Node node, Consumer consumer) {
+        if (node instanceof LambdaExpr || node instanceof TypeDeclaration || node instanceof LocalClassDeclarationStmt) {
+            return;
+        }
+        if (node instanceof ObjectCreationExpr) {
+            ObjectCreationExpr creation = (ObjectCreationExpr) node;
+            creation.getScope().ifPresent(scope -> visit(scope, consumer));
+            creation.getArguments().forEach(argument -> visit(argument, consumer));
+            return;
+        }
+        if (node instanceof NameExpr) {
+            use(resolve((NameExpr) node), consumer);
+            return;
+        }
+        if (node instanceof AssignExpr) {
+            AssignExpr assignExpr = (AssignExpr) node;
+            visit(assignExpr.getValue(), consumer);
+            if (assignExpr.getTarget() instanceof NameExpr) {
+                Integer variable = resolve((NameExpr) assignExpr.getTarget());
+                if (assignExpr.getOperator() != AssignExpr.Operator.ASSIGN) {
+                    use(variable, consumer);
+                }
+                define(variable, consumer);
+            } else {
+                visit(assignExpr.getTarget(), consumer);
+            }
+            return;
+        }
+        if (node instanceof UnaryExpr) {
+            UnaryExpr unaryExpr = (UnaryExpr) node;
+            visit(unaryExpr.getExpression(), consumer);
+            if (unaryExpr.getExpression() instanceof NameExpr && isIncrementOrDecrement(unaryExpr.getOperator())) {
+                define(resolve((NameExpr) unaryExpr.getExpression()), consumer);
+            }
+            return;
+        }
+        if (node instanceof VariableDeclarator) {
+            VariableDeclarator declarator = (VariableDeclarator) node;
+            declarator.getInitializer().ifPresent(initializer -> {
+                visit(initializer, consumer);
+                define(variables.get(declarator), consumer);
+            });
+            return;
+        }
+        for (Node child : node.getChildNodes()) {
+            visit(child, consumer);
+        }
+    }
+
+    private static boolean isConditional(Node node) {
+        return node instanceof IfStmt || node instanceof ForStmt || node instanceof WhileStmt || node instanceof DoStmt;
+    }
+
+    /**
+     * @return whether the operator writes its variable. Minus, plus, not and bitwise complement only read it.
+     */
+    private static boolean isIncrementOrDecrement(UnaryExpr.Operator operator) {
+        switch (operator) {
+            case PREFIX_INCREMENT:
+            case PREFIX_DECREMENT:
+            case POSTFIX_INCREMENT:
+            case POSTFIX_DECREMENT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void use(Integer variable, Consumer consumer) {
+        if (variable != null) {
+            consumer.access(variable, false);
+        }
+    }
+
+    private void define(Integer variable, Consumer consumer) {
+        if (variable != null) {
+            consumer.access(variable, true);
+        }
+    }
+
+    /**
+     * @return the variable that a name refers to, or null when it is not declared in the analysed code.
+     */
+    private Integer resolve(NameExpr nameExpr) {
+        String name = nameExpr.getNameAsString();
+        Node child = nameExpr;
+        while (child != root && child.getParentNode().isPresent()) {
+            Node scope = child.getParentNode().get();
+            Node declaration = declarationIn(scope, child, name);
+            if (declaration != null) {
+                // Null for lambda parameters, which hide nothing but aren't tracked either.
+                return variables.get(declaration);
+            }
+            child = scope;
+        }
+        return null;
+    }
+
+    /**
+     * @return the declaration of a name that the scope makes visible to its child, or null.
+     */
+    private static Node declarationIn(Node scope, Node child, String name) {
+        if (scope instanceof CallableDeclaration) {
+            return parameter(((CallableDeclaration<?>) scope).getParameters(), name);
+        }
+        if (scope instanceof LambdaExpr) {
+            return parameter(((LambdaExpr) scope).getParameters(), name);
+        }
+        if (scope instanceof CatchClause) {
+            Parameter parameter = ((CatchClause) scope).getParameter();
+            return parameter.getNameAsString().equals(name) ? parameter : null;
+        }
+        if (scope instanceof ForEachStmt) {
+            ForEachStmt forEachStmt = (ForEachStmt) scope;
+            return child == forEachStmt.getIterable() ? null : declarator(forEachStmt.getVariable(), name);
+        }
+        if (scope instanceof ForStmt) {
+            return declaratorBefore(((ForStmt) scope).getInitialization(), null, name);
+        }
+        if (scope instanceof TryStmt) {
+            TryStmt tryStmt = (TryStmt) scope;
+            if (child == tryStmt.getTryBlock()) {
+                return declaratorBefore(tryStmt.getResources(), null, name);
+            }
+            return declaratorBefore(tryStmt.getResources(), child, name);
+        }
+        if (scope instanceof VariableDeclarationExpr) {
+            for (VariableDeclarator declarator : ((VariableDeclarationExpr) scope).getVariables()) {
+                if (declarator == child) {
+                    return null;
+                }
+                if (declarator.getNameAsString().equals(name)) {
+                    return declarator;
+                }
+            }
+            return null;
+        }
+        if (scope instanceof SwitchStmt) {
+            // A variable declared in an earlier entry is still in scope in the later ones.
+            for (SwitchEntry entry : ((SwitchStmt) scope).getEntries()) {
+                if (entry == child) {
+                    return null;
+                }
+                Node declaration = declaratorBefore(entry.getStatements(), null, name);
+                if (declaration != null) {
+                    return declaration;
+                }
+            }
+            return null;
+        }
+        if (scope instanceof NodeWithStatements) {
+            return declaratorBefore(((NodeWithStatements<?>) scope).getStatements(), child, name);
+        }
+        return null;
+    }
+
+    private static Node parameter(NodeList<Parameter> parameters, String name) {
+        for (Parameter parameter : parameters) {
+            if (parameter.getNameAsString().equals(name)) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the declaration of the name in the nodes before the child, or in all nodes when child is null.
+     */
+    private static Node declaratorBefore(NodeList<? extends Node> nodes, Node child, String name) {
+        for (Node node : nodes) {
+            if (node == child) {
+                break;
+            }
+            if (node instanceof ExpressionStmt) {
+                node = ((ExpressionStmt) node).getExpression();
+            }
+            if (node instanceof VariableDeclarationExpr) {
+                Node declaration = declarator((VariableDeclarationExpr) node, name);
+                if (declaration != null) {
+                    return declaration;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Node declarator(VariableDeclarationExpr declaration, String name) {
+        for (VariableDeclarator declarator : declaration.getVariables()) {
+            if (declarator.getNameAsString().equals(name)) {
+                return declarator;
+            }
+        }
+        return null;
+    }
+
+    interface Consumer {
+        void access(int variable, boolean write);
+    }
+}
@@ -24,9 +24,6 @@ public class Visitor {
                 continue;
             }
             result = result.append(mapper.apply(flow));
-            if (flow instanceof Flow.ForwardDeclaredFlow) {
-                seen = seen.add(((Flow.ForwardDeclaredFlow) flow).getIndirection());
-            }
             seen = seen.add(flow);
 
             if (flow.getNext() != null) {
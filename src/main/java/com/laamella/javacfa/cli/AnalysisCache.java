@@ -0,0 +1,193 @@
+package com.laamella.javacfa.cli;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps the results of earlier runs on disk, so that unchanged files are neither parsed nor analysed again.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the file name and contents, and everything else that influences the result:
+ * the analyser version and the options.
+ * Every entry is a file, written to a temporary file first and then moved into place,
+ * so any number of threads and processes can share a cache directory.
+ * When the cache grows beyond its maximum size, the least recently used entries are deleted.
+ */
+class AnalysisCache {
+    private static final int MAGIC = 0x4a434641;
+    private static final String SUFFIX = ".cfa";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final byte[] salt;
+    private final AtomicLong size = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * @param salt everything besides the file contents that influences the result.
+     */
+    AnalysisCache(Path directory, long maxBytes, String salt) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.salt = salt.getBytes(UTF_8);
+        size.set(entries().stream().mapToLong(Entry::getSize).sum());
+    }
+
+    /**
+     * @return the key for a file with these contents.
+     * The name is part of the key, because it is part of the result.
+     */
+    String key(String file, byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update((byte) 0);
+            digest.update(file.getBytes(UTF_8));
+            digest.update((byte) 0);
+            byte[] hash = digest.digest(content);
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the stored result, or null if there is none.
+     */
+    FileResult get(String key) {
+        Path path = path(key);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(path))))) {
+            if (input.readInt() != MAGIC) {
+                return null;
+            }
+            int methods = input.readInt();
+            boolean failed = input.readBoolean();
+            byte[] text = new byte[input.readInt()];
+            input.readFully(text);
+            // The modification time tells eviction when the entry was last used.
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return new FileResult(new String(text, UTF_8), methods, failed);
+        } catch (IOException e) {
+            // Missing, or damaged, which is as good as missing.
+            return null;
+        }
+    }
+
+    void put(String key, FileResult result) throws IOException {
+        Path path = path(key);
+        Files.createDirectories(path.getParent());
+        Path temporary = Files.createTempFile(path.getParent(), key, ".tmp");
+        try {
+            byte[] text = result.getText().getBytes(UTF_8);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(temporary))))) {
+                output.writeInt(MAGIC);
+                output.writeInt(result.getMethods());
+                output.writeBoolean(result.isFailed());
+                output.writeInt(text.length);
+                output.write(text);
+            }
+            long entrySize = Files.size(temporary);
+            // An entry that is already there is replaced, so only the difference counts.
+            long oldSize = sizeOf(path);
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (size.addAndGet(entrySize - oldSize) > maxBytes) {
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is at 90% of its maximum size.
+     */
+    private void evict() throws IOException {
+        synchronized (evictionLock) {
+            if (size.get() <= maxBytes) {
+                return;
+            }
+            List<Entry> entries = entries();
+            entries.sort(Comparator.comparing(Entry::getLastUsed));
+            long total = entries.stream().mapToLong(Entry::getSize).sum();
+            for (Entry entry : entries) {
+                if (total <= maxBytes * 9 / 10) {
+                    break;
+                }
+                if (Files.deleteIfExists(entry.path)) {
+                    total -= entry.size;
+                }
+            }
+            size.set(total);
+        }
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> p.getFileName().toString().endsWith(SUFFIX))::iterator) {
+                try {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (NoSuchFileException e) {
+                    // Evicted by someone else in the meantime.
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static long sizeOf(Path path) throws IOException {
+        try {
+            return Files.size(path);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private Path path(String key) {
+        // Spread the entries over subdirectories to keep directories small.
+        return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+
+    long getSize() {
+        return size.get();
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private final FileTime lastUsed;
+
+        Entry(Path path, long size, FileTime lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        FileTime getLastUsed() {
+            return lastUsed;
+        }
+    }
+}
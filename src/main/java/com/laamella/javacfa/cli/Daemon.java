@@ -0,0 +1,294 @@
+package com.laamella.javacfa.cli;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
+import com.laamella.javacfa.CompilationUnitFlows;
+import com.laamella.javacfa.ControlFlowAnalyser;
+import com.laamella.javacfa.Flow;
+import io.vavr.collection.List;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps parsed and analysed files in memory and answers questions about them over a local socket.
+ * <p>
+ * The protocol is line based. Every request is one line, and every response ends with a line holding a single dot.
+ * <ul>
+ * <li>FLOWS &lt;file&gt; - the flows of all methods in the file, in the chosen output format.</li>
+ * <li>ERRORS &lt;file&gt; - the parse problems and flow errors in the file, one per line.</li>
+ * <li>INVALIDATE &lt;file&gt; - forget the file.</li>
+ * <li>STATS - the amount of files in memory, and how often they could be reused.</li>
+ * <li>QUIT - close the connection.</li>
+ * <li>SHUTDOWN - stop the daemon.</li>
+ * </ul>
+ * A file is analysed again when its contents change.
+ * When more files are asked for than fit in memory, the one that was asked for least recently is forgotten.
+ * Every connection gets its own thread, which is a virtual thread on JDKs that have them.
+ */
+public class Daemon implements Closeable {
+    /**
+     * The default maximum amount of files that are kept in memory.
+     */
+    public static final int DEFAULT_MAX_FILES = 1000;
+
+    private final Options options;
+    private final ServerSocket serverSocket;
+    private final ControlFlowAnalyser analyser;
+    private final Map<Path, LoadedFile> files;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean running = true;
+
+    public Daemon(Options options, int port) throws IOException {
+        this(options, port, DEFAULT_MAX_FILES);
+    }
+
+    Daemon(Options options, int port, int maxFiles) throws IOException {
+        this.options = options;
+        // In access order, so the eldest entry is the least recently used one.
+        this.files = Collections.synchronizedMap(new LinkedHashMap<Path, LoadedFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, LoadedFile> eldest) {
+                return size() > maxFiles;
+            }
+        });
+        this.analyser = options.createAnalyser();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * @return the port the daemon listens on, which is useful when it was started on port 0.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until SHUTDOWN is requested, or the daemon is closed.
+     */
+    public void serve() throws IOException {
+        ExecutorService connections = connectionExecutor();
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (running) {
+                        throw e;
+                    }
+                    break;
+                }
+                connections.execute(() -> handle(socket));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per task when the JDK supports it,
+     * or a platform thread per task otherwise.
+     */
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "daemon-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader input = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+             Writer output = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), UTF_8))) {
+            String request;
+            while ((request = input.readLine()) != null) {
+                int space = request.indexOf(' ');
+                String command = space < 0 ? request : request.substring(0, space);
+                String argument = space < 0 ? "" : request.substring(space + 1).trim();
+                if (command.equals("QUIT")) {
+                    return;
+                }
+                if (command.equals("SHUTDOWN")) {
+                    respond(output, "OK\n");
+                    close();
+                    return;
+                }
+                respond(output, answer(command, argument));
+            }
+        } catch (IOException e) {
+            // The client went away, nothing to tell anyone.
+        }
+    }
+
+    private static void respond(Writer output, String response) throws IOException {
+        output.write(response);
+        output.write(".\n");
+        output.flush();
+    }
+
+    private String answer(String command, String argument) {
+        try {
+            switch (command) {
+                case "FLOWS":
+                    return load(argument).getResult().getText();
+                case "ERRORS":
+                    return load(argument).getErrors();
+                case "INVALIDATE":
+                    files.remove(path(argument));
+                    return "OK\n";
+                case "STATS":
+                    return "files " + files.size() + "\nhits " + hits.get() + "\nmisses " + misses.get() + "\n";
+                default:
+                    return "ERROR Unknown command: " + command + "\n";
+            }
+        } catch (IOException | RuntimeException e) {
+            // Bad paths, and files that the parser or the analyser can't handle, shouldn't end the connection.
+            return "ERROR " + e + "\n";
+        }
+    }
+
+    private static Path path(String argument) {
+        return Paths.get(argument).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the analysed file, analysing it first when it is not in memory or when its contents changed.
+     */
+    LoadedFile load(String argument) throws IOException {
+        Path path = path(argument);
+        long size = Files.size(path);
+        FileTime modified = Files.getLastModifiedTime(path);
+        LoadedFile loaded = files.get(path);
+        if (loaded != null && loaded.size == size && loaded.modified.equals(modified)) {
+            hits.incrementAndGet();
+            return loaded;
+        }
+        byte[] content = Files.readAllBytes(path);
+        byte[] hash = sha256(content);
+        if (loaded != null && Arrays.equals(loaded.hash, hash)) {
+            // Touched, but not changed.
+            hits.incrementAndGet();
+            loaded = new LoadedFile(loaded, size, modified);
+        } else {
+            misses.incrementAndGet();
+            loaded = analyse(path, content, hash, size, modified);
+        }
+        files.put(path, loaded);
+        return loaded;
+    }
+
+    private LoadedFile analyse(Path path, byte[] content, byte[] hash, long size, FileTime modified) {
+        ParseResult<CompilationUnit> parseResult = new JavaParser().parse(new String(content, UTF_8));
+        CompilationUnit compilationUnit = parseResult.getResult().orElse(null);
+        List<Problem> problems = List.ofAll(parseResult.getProblems());
+        if (!parseResult.isSuccessful() || compilationUnit == null) {
+            return new LoadedFile(hash, size, modified, null, null, problems,
+                    options.getFormat().renderProblems(path.toString(), problems));
+        }
+        CompilationUnitFlows flows = analyser.analyse(compilationUnit);
+        return new LoadedFile(hash, size, modified, compilationUnit, flows, problems,
+                options.getFormat().render(path.toString(), compilationUnit, flows));
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+
+    /**
+     * A file as it was when it was last analysed.
+     */
+    static class LoadedFile {
+        private final byte[] hash;
+        private final long size;
+        private final FileTime modified;
+        private final CompilationUnit compilationUnit;
+        private final CompilationUnitFlows flows;
+        private final List<Problem> problems;
+        private final FileResult result;
+
+        LoadedFile(byte[] hash, long size, FileTime modified, CompilationUnit compilationUnit, CompilationUnitFlows flows, List<Problem> problems, FileResult result) {
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+            this.compilationUnit = compilationUnit;
+            this.flows = flows;
+            this.problems = problems;
+            this.result = result;
+        }
+
+        LoadedFile(LoadedFile unchanged, long size, FileTime modified) {
+            this(unchanged.hash, size, modified, unchanged.compilationUnit, unchanged.flows, unchanged.problems, unchanged.result);
+        }
+
+        /**
+         * @return the compilation unit, or null when the file could not be parsed.
+         */
+        CompilationUnit getCompilationUnit() {
+            return compilationUnit;
+        }
+
+        /**
+         * @return the flows, or null when the file could not be parsed.
+         */
+        CompilationUnitFlows getFlows() {
+            return flows;
+        }
+
+        FileResult getResult() {
+            return result;
+        }
+
+        String getErrors() {
+            StringBuilder errors = new StringBuilder();
+            problems.forEach(problem -> errors.append(problem.getVerboseMessage()).append("\n"));
+            if (flows != null) {
+                flows.getConstructorFlows().appendAll(flows.getMethodFlows())
+                        .filter(flow -> flow != null)
+                        .forEach(flow -> flow.getAllErrors().forEach((errorFlow, messages) -> messages.forEach(message ->
+                                errors.append(line(errorFlow)).append(": ").append(message).append("\n"))));
+            }
+            return errors.toString();
+        }
+
+        private static String line(Flow flow) {
+            return flow.getNode().getRange().map(range -> "" + range.begin.line).orElse("?");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.laamella.javacfa.cli;
+
+/**
+ * The formatted output for one source file.
+ */
+class FileResult {
+    private final String text;
+    private final int methods;
+    private final boolean failed;
+
+    FileResult(String text, int methods, boolean failed) {
+        this.text = text;
+        this.methods = methods;
+        this.failed = failed;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    int getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return whether the file could not be parsed.
+     */
+    boolean isFailed() {
+        return failed;
+    }
+}
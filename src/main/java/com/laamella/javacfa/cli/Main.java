@@ -0,0 +1,66 @@
+package com.laamella.javacfa.cli;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Command line entry point: analyses all Java files under some source roots.
+ * Run without arguments for the usage.
+ */
+public class Main {
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @return the exit code: 0 when all went well, 1 when some files failed, 2 for wrong arguments.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(Options.USAGE);
+            return 2;
+        }
+        if (options.getDaemonPort() != null) {
+            return runDaemon(options, err);
+        }
+        Statistics statistics = new Statistics();
+        try {
+            if (options.getOutput() == null) {
+                // Standard output is not ours to close.
+                Writer output = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+                new Pipeline(options, statistics, err::println).run(output);
+            } else {
+                try (Writer output = Files.newBufferedWriter(options.getOutput(), UTF_8)) {
+                    new Pipeline(options, statistics, err::println).run(output);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        if (!options.isQuiet()) {
+            err.println(statistics.summary());
+        }
+        return statistics.getFailedFiles() == 0 ? 0 : 1;
+    }
+
+    private static int runDaemon(Options options, PrintStream err) {
+        try (Daemon daemon = new Daemon(options, options.getDaemonPort())) {
+            err.println("Listening on port " + daemon.getPort());
+            daemon.serve();
+            return 0;
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.laamella.javacfa.cli;
+
+import com.laamella.javacfa.ControlFlowAnalyser;
+import com.laamella.javacfa.ThrowResolution;
+import io.vavr.collection.List;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The command line options of {@link Main}.
+ */
+public class Options {
+    static final String USAGE = String.join("\n",
+            "Usage: java -jar java-control-flow-analyser.jar [options] <source root>...",
+            "   or: java -jar java-control-flow-analyser.jar [options] --daemon <port>",
+            "",
+            "Analyses the control flow of every method in every .java file under the source roots,",
+            "or keeps analysed files in memory and answers requests for them on a local port.",
+            "",
+            "Options:",
+            "  --format <jsonl|debug>  output format, default jsonl",
+            "  --output <file>         write results to a file instead of standard output",
+            "  --readers <n>           threads reading files, default 1",
+            "  --parsers <n>           threads parsing files, default the amount of processors",
+            "  --analysers <n>         threads analysing and formatting, default the amount of processors",
+            "  --throws <syntactic|symbol-solver|syntactic-with-fallback>",
+            "                          how to find the catch clause for a throw statement, default syntactic",
+            "  --max-flows <n>         stop analysing a method after this many flows, default 1000000",
+            "  --max-millis <n>        stop analysing a method after this many milliseconds, default 10000",
+            "  --max-depth <n>         do not analyse statements nested deeper than this, default 1000",
+            "  --fold-constants        make conditions that are always true or false unconditional, and report unreachable code",
+            "  --cache <directory>     keep results in this directory and reuse them for unchanged files",
+            "  --cache-size <MB>       the maximum size of the cache, default 1024",
+            "  --daemon <port>         run as a daemon on this port, 0 picks a free port",
+            "  --quiet                 do not print the summary to standard error",
+            "");
+
+    private List<Path> sourceRoots = List.empty();
+    private OutputFormat format = OutputFormat.JSONL;
+    private Path output = null;
+    private int readers = 1;
+    private int parsers = Runtime.getRuntime().availableProcessors();
+    private int analysers = Runtime.getRuntime().availableProcessors();
+    private boolean quiet = false;
+    private ThrowResolution throwResolution = ThrowResolution.SYNTACTIC;
+    private int maxFlows = 1_000_000;
+    private long maxMillis = 10_000;
+    private int maxDepth = 1000;
+    private boolean foldConstants = false;
+    private Integer daemonPort = null;
+    private Path cacheDirectory = null;
+    private long cacheBytes = 1024L * 1024 * 1024;
+
+    /**
+     * @throws IllegalArgumentException when the arguments make no sense.
+     */
+    public static Options parse(String... args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                options.sourceRoots = options.sourceRoots.append(Paths.get(arg));
+                continue;
+            }
+            switch (arg) {
+                case "--format":
+                    String format = value(args, ++i, arg);
+                    options.format = List.of(OutputFormat.values())
+                            .find(f -> f.getName().equals(format))
+                            .getOrElseThrow(() -> new IllegalArgumentException("Unknown format: " + format));
+                    break;
+                case "--output":
+                    options.output = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--readers":
+                    options.readers = threads(args, ++i, arg);
+                    break;
+                case "--parsers":
+                    options.parsers = threads(args, ++i, arg);
+                    break;
+                case "--analysers":
+                    options.analysers = threads(args, ++i, arg);
+                    break;
+                case "--throws":
+                    String throwResolution = value(args, ++i, arg);
+                    options.throwResolution = List.of(ThrowResolution.values())
+                            .find(r -> name(r).equals(throwResolution))
+                            .getOrElseThrow(() -> new IllegalArgumentException("Unknown throw resolution: " + throwResolution));
+                    break;
+                case "--max-flows":
+                    options.maxFlows = (int) Math.min(number(args, ++i, arg), Integer.MAX_VALUE);
+                    break;
+                case "--max-millis":
+                    options.maxMillis = number(args, ++i, arg);
+                    break;
+                case "--max-depth":
+                    options.maxDepth = (int) Math.min(number(args, ++i, arg), Integer.MAX_VALUE);
+                    break;
+                case "--fold-constants":
+                    options.foldConstants = true;
+                    break;
+                case "--cache":
+                    options.cacheDirectory = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--cache-size":
+                    options.cacheBytes = number(args, ++i, arg) * 1024 * 1024;
+                    break;
+                case "--daemon":
+                    options.daemonPort = port(args, ++i, arg);
+                    break;
+                case "--quiet":
+                    options.quiet = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.sourceRoots.isEmpty() && options.daemonPort == null) {
+            throw new IllegalArgumentException("No source roots given.");
+        }
+        return options;
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase().replace('_', '-');
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    private static int port(String[] args, int i, String option) {
+        String value = value(args, i, option);
+        try {
+            int port = Integer.parseInt(value);
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("Not a port for " + option + ": " + value);
+            }
+            return port;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+        }
+    }
+
+    private static int threads(String[] args, int i, String option) {
+        return (int) number(args, i, option);
+    }
+
+    private static long number(String[] args, int i, String option) {
+        String value = value(args, i, option);
+        try {
+            long number = Long.parseLong(value);
+            if (number < 1) {
+                throw new IllegalArgumentException(option + " needs at least 1.");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+        }
+    }
+
+    public List<Path> getSourceRoots() {
+        return sourceRoots;
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the file to write to, or null for standard output.
+     */
+    public Path getOutput() {
+        return output;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public int getParsers() {
+        return parsers;
+    }
+
+    public int getAnalysers() {
+        return analysers;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public ThrowResolution getThrowResolution() {
+        return throwResolution;
+    }
+
+    public int getMaxFlows() {
+        return maxFlows;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isFoldConstants() {
+        return foldConstants;
+    }
+
+    /**
+     * @return an analyser configured with these options.
+     */
+    ControlFlowAnalyser createAnalyser() {
+        return new ControlFlowAnalyser()
+                .setThrowResolution(throwResolution)
+                .setMaxFlows(maxFlows)
+                .setMaxMillis(maxMillis)
+                .setMaxDepth(maxDepth)
+                .setFoldConstantConditions(foldConstants);
+    }
+
+    /**
+     * @return the port to run the daemon on, or null when not running as a daemon.
+     */
+    public Integer getDaemonPort() {
+        return daemonPort;
+    }
+
+    /**
+     * @return the directory to cache results in, or null for no caching.
+     */
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * @return everything besides the contents of a file that determines the output for it.
+     */
+    String describeResultSettings() {
+        return "analyser " + ControlFlowAnalyser.VERSION + ", format " + format.getName() + ", throws " + name(throwResolution)
+                + ", max flows " + maxFlows + ", max millis " + maxMillis + ", max depth " + maxDepth
+                + ", fold constants " + foldConstants;
+    }
+}
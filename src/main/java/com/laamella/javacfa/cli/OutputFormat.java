@@ -0,0 +1,107 @@
+package com.laamella.javacfa.cli;
+
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.laamella.javacfa.CompilationUnitFlows;
+import com.laamella.javacfa.DebugOutput;
+import com.laamella.javacfa.Flow;
+import com.laamella.javacfa.JsonOutput;
+import io.vavr.collection.List;
+
+import static com.laamella.javacfa.JsonOutput.quote;
+
+/**
+ * The ways {@link Main} can write the flows of a file.
+ */
+public enum OutputFormat {
+    /**
+     * One JSON object per method, per line.
+     */
+    JSONL("jsonl") {
+        @Override
+        String method(String file, CallableDeclaration<?> declaration, Flow flow) {
+            return "{\"file\":" + quote(file) +
+                    ",\"method\":" + quote(describe(declaration)) +
+                    ",\"line\":" + declaration.getRange().map(range -> "" + range.begin.line).orElse("null") +
+                    ",\"flows\":" + (flow == null ? "null" : new JsonOutput().print(flow)) +
+                    "}\n";
+        }
+
+        @Override
+        String problems(String file, List<Problem> problems) {
+            return "{\"file\":" + quote(file) +
+                    ",\"problems\":" + problems.map(problem -> quote(problem.getVerboseMessage())).mkString("[", ",", "]") +
+                    "}\n";
+        }
+    },
+    /**
+     * The {@link DebugOutput} of every method, preceded by a comment line naming it.
+     */
+    DEBUG("debug") {
+        @Override
+        String method(String file, CallableDeclaration<?> declaration, Flow flow) {
+            return "// " + file + " " + describe(declaration) + "\n" +
+                    (flow == null ? "Not a flow.\n" : new DebugOutput().print(flow));
+        }
+
+        @Override
+        String problems(String file, List<Problem> problems) {
+            return "// " + file + "\n" + problems.map(Problem::getVerboseMessage).mkString("", "\n", "\n");
+        }
+    };
+
+    private final String name;
+
+    OutputFormat(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name to use on the command line.
+     */
+    public String getName() {
+        return name;
+    }
+
+    abstract String method(String file, CallableDeclaration<?> declaration, Flow flow);
+
+    abstract String problems(String file, List<Problem> problems);
+
+    /**
+     * @return the output for all methods in a compilation unit.
+     */
+    FileResult render(String file, CompilationUnit compilationUnit, CompilationUnitFlows flows) {
+        // The analyser lists constructors and methods in the same order as findAll.
+        List<CallableDeclaration<?>> declarations = List.<CallableDeclaration<?>>ofAll(compilationUnit.findAll(ConstructorDeclaration.class))
+                .appendAll(compilationUnit.findAll(MethodDeclaration.class));
+        List<Flow> allFlows = flows.getConstructorFlows().appendAll(flows.getMethodFlows());
+        StringBuilder output = new StringBuilder();
+        declarations.zip(allFlows).forEach(declarationAndFlow ->
+                output.append(method(file, declarationAndFlow._1, declarationAndFlow._2)));
+        return new FileResult(output.toString(), declarations.size(), false);
+    }
+
+    FileResult renderProblems(String file, List<Problem> problems) {
+        return new FileResult(problems(file, problems), 0, true);
+    }
+
+    /**
+     * @return the names of the surrounding types and the signature, like "X.Inner.method(int)".
+     */
+    private static String describe(CallableDeclaration<?> declaration) {
+        List<String> names = List.of(declaration.getSignature().asString());
+        Node parent = declaration.getParentNode().orElse(null);
+        while (parent != null) {
+            if (parent instanceof TypeDeclaration) {
+                names = names.prepend(((TypeDeclaration<?>) parent).getNameAsString());
+            }
+            parent = parent.getParentNode().orElse(null);
+        }
+        return names.mkString(".");
+    }
+}
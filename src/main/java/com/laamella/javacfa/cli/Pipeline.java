@@ -0,0 +1,185 @@
+package com.laamella.javacfa.cli;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.laamella.javacfa.CompilationUnitFlows;
+import com.laamella.javacfa.ControlFlowAnalyser;
+import io.vavr.collection.List;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Runs every source file through three thread pools: reading, parsing, and analysing plus formatting.
+ * The results are written as soon as they are ready, so the order of the files in the output is not fixed.
+ * <p>
+ * With a cache, the readers look up every file right after reading it,
+ * and files that are in the cache skip the other stages.
+ */
+class Pipeline {
+    private final Options options;
+    private final Statistics statistics;
+    private final Consumer<String> errors;
+    private final ControlFlowAnalyser analyser;
+    // JavaParser instances can not be shared between threads.
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(JavaParser::new);
+
+    Pipeline(Options options, Statistics statistics, Consumer<String> errors) {
+        this(options, statistics, errors, options.createAnalyser());
+    }
+
+    Pipeline(Options options, Statistics statistics, Consumer<String> errors, ControlFlowAnalyser analyser) {
+        this.options = options;
+        this.statistics = statistics;
+        this.errors = errors;
+        this.analyser = analyser;
+    }
+
+    void run(Writer output) throws IOException, InterruptedException {
+        AnalysisCache cache = options.getCacheDirectory() == null ? null :
+                new AnalysisCache(options.getCacheDirectory(), options.getCacheBytes(), options.describeResultSettings());
+        ExecutorService readers = Executors.newFixedThreadPool(options.getReaders(), threadFactory("reader"));
+        ExecutorService parsers = Executors.newFixedThreadPool(options.getParsers(), threadFactory("parser"));
+        ExecutorService analysers = Executors.newFixedThreadPool(options.getAnalysers(), threadFactory("analyser"));
+        // Keeps the readers from running too far ahead of the other stages.
+        int maxInFlight = 4 * (options.getReaders() + options.getParsers() + options.getAnalysers());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        // Nothing waits for the futures, so the first failure to write is kept here and thrown at the end.
+        AtomicReference<UncheckedIOException> writeFailure = new AtomicReference<>();
+        try {
+            for (Path root : options.getSourceRoots()) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    for (Path file : (Iterable<Path>) files.filter(Pipeline::isJavaFile)::iterator) {
+                        inFlight.acquire();
+                        CompletableFuture.supplyAsync(() -> read(file, cache), readers)
+                                .thenCompose(source -> source.cached != null ?
+                                        CompletableFuture.completedFuture(source.cached) :
+                                        CompletableFuture.supplyAsync(() -> parse(source), parsers)
+                                                .thenApplyAsync(parseResult -> analyse(source, parseResult, cache), analysers))
+                                .whenComplete((result, error) -> {
+                                    try {
+                                        if (error == null) {
+                                            write(output, result);
+                                        } else {
+                                            statistics.fileFailed();
+                                            errors.accept(file + ": " + (error.getCause() == null ? error : error.getCause()));
+                                        }
+                                    } catch (UncheckedIOException e) {
+                                        writeFailure.compareAndSet(null, e);
+                                    } finally {
+                                        inFlight.release();
+                                    }
+                                });
+                    }
+                }
+            }
+            inFlight.acquire(maxInFlight);
+            if (writeFailure.get() != null) {
+                throw writeFailure.get().getCause();
+            }
+        } finally {
+            readers.shutdownNow();
+            parsers.shutdownNow();
+            analysers.shutdownNow();
+        }
+        output.flush();
+    }
+
+    private static boolean isJavaFile(Path path) {
+        return path.getFileName().toString().endsWith(".java") && Files.isRegularFile(path);
+    }
+
+    private SourceFile read(Path file, AnalysisCache cache) {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            statistics.fileRead(bytes.length);
+            if (cache == null) {
+                return new SourceFile(file, bytes, null, null);
+            }
+            String key = cache.key(file.toString(), bytes);
+            FileResult cached = cache.get(key);
+            if (cached != null) {
+                statistics.cacheHit();
+            }
+            return new SourceFile(file, bytes, key, cached);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ParseResult<CompilationUnit> parse(SourceFile source) {
+        return parsers.get().parse(new String(source.content, UTF_8));
+    }
+
+    private FileResult analyse(SourceFile source, ParseResult<CompilationUnit> parseResult, AnalysisCache cache) {
+        String file = source.path.toString();
+        FileResult result;
+        // A result that ran out of time could be different next time, so it is not cached.
+        boolean reproducible = true;
+        if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+            result = options.getFormat().renderProblems(file, List.ofAll(parseResult.getProblems()));
+        } else {
+            CompilationUnit compilationUnit = parseResult.getResult().get();
+            CompilationUnitFlows flows = analyser.analyse(compilationUnit);
+            result = options.getFormat().render(file, compilationUnit, flows);
+            reproducible = !flows.getConstructorFlows().appendAll(flows.getMethodFlows()).exists(analyser::isOutOfTime);
+        }
+        if (cache != null && reproducible) {
+            try {
+                cache.put(source.cacheKey, result);
+            } catch (IOException e) {
+                errors.accept("Could not cache " + file + ": " + e);
+            }
+        }
+        return result;
+    }
+
+    private void write(Writer output, FileResult result) {
+        statistics.fileDone(result);
+        synchronized (output) {
+            try {
+                output.write(result.getText());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class SourceFile {
+        private final Path path;
+        private final byte[] content;
+        private final String cacheKey;
+        private final FileResult cached;
+
+        SourceFile(Path path, byte[] content, String cacheKey, FileResult cached) {
+            this.path = path;
+            this.content = content;
+            this.cacheKey = cacheKey;
+            this.cached = cached;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
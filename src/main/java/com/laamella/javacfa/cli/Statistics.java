@@ -0,0 +1,75 @@
+package com.laamella.javacfa.cli;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what {@link Main} did, for the throughput summary.
+ */
+class Statistics {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong methods = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    void fileRead(long size) {
+        bytes.addAndGet(size);
+    }
+
+    void cacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    void fileDone(FileResult result) {
+        files.incrementAndGet();
+        methods.addAndGet(result.getMethods());
+        if (result.isFailed()) {
+            failedFiles.incrementAndGet();
+        }
+    }
+
+    void fileFailed() {
+        files.incrementAndGet();
+        failedFiles.incrementAndGet();
+    }
+
+    long getFiles() {
+        return files.get();
+    }
+
+    long getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    long getMethods() {
+        return methods.get();
+    }
+
+    long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return the highest heap usage of this JVM so far, summed over all heap memory pools.
+     */
+    static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    String summary() {
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        return String.format("%d files (%d failed, %d cached, %.1f MB), %d methods in %.2f s: %.1f files/s, %.1f methods/s, peak heap %.1f MB",
+                files.get(), failedFiles.get(), cacheHits.get(), bytes.get() / 1e6, methods.get(), seconds,
+                files.get() / seconds, methods.get() / seconds, peakHeapBytes() / 1e6);
+    }
+}
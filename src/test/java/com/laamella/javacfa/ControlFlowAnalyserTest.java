@@ -3,8 +3,13 @@ package com.laamella.javacfa;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
@@ -13,6 +18,7 @@ import com.laamella.snippets_test_junit5.SnippetFileFormat;
 import com.laamella.snippets_test_junit5.SnippetTestFactory;
 import io.vavr.control.Option;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 import org.opentest4j.AssertionFailedError;
 
@@ -22,6 +28,10 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static com.laamella.snippets_test_junit5.TestCaseFilenameFilter.allFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ControlFlowAnalyserTest {
     private final BasePath basePath = BasePath.fromMavenModuleRoot(ControlFlowAnalyserTest.class).inSrcTestResources();
@@ -51,11 +61,131 @@ class ControlFlowAnalyserTest {
         ).stream();
     }
 
+    @TestFactory
+    Stream<DynamicTest> syntacticThrowsTests() throws IOException {
+        JavaParser jp = new JavaParser();
+        return new SnippetTestFactory<>(
+                new SnippetFileFormat("/*", "*/\n", "\n/* expected:\n", "\n---\n", "*/"),
+                basePath.inSubDirectory("syntactic_throws"),
+                allFiles(),
+                jp::parse,
+                (testCaseText, testCase) -> dumpMultipleDebugFlow(testCase, new ControlFlowAnalyser().setThrowResolution(ThrowResolution.SYNTACTIC))
+        ).stream();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> constantConditionsTests() throws IOException {
+        JavaParser jp = new JavaParser();
+        return new SnippetTestFactory<>(
+                new SnippetFileFormat("/*", "*/\n", "\n/* expected:\n", "\n---\n", "*/"),
+                basePath.inSubDirectory("constant_conditions"),
+                allFiles(),
+                jp::parse,
+                (testCaseText, testCase) -> dumpMultipleDebugFlow(testCase, new ControlFlowAnalyser().setFoldConstantConditions(true))
+        ).stream();
+    }
+
+    @Test
+    void flowBudgetStopsFinallyDuplication() {
+        // Every finally block is copied for every way out of its try block,
+        // so try statements nested in finally blocks grow exponentially.
+        StringBuilder code = new StringBuilder("void a() { l: while (b()) { ");
+        for (int i = 0; i < 14; i++) {
+            code.append("try { if (c()) break l; d(); } finally { ");
+        }
+        for (int i = 0; i < 14; i++) {
+            code.append("e(); } ");
+        }
+        code.append("} }");
+        Flow start = new ControlFlowAnalyser().setMaxFlows(1000).analyse(StaticJavaParser.parseMethodDeclaration(code.toString()));
+        assertTrue(start.getIndex().size() < 2000);
+        assertEquals("Analysis stopped after 1000 flows.", start.getErrors().head());
+    }
+
+    @Test
+    void depthBudgetSimplifiesDeepStatements() {
+        Flow start = new ControlFlowAnalyser().setMaxDepth(3).analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { if (b) { if (c) { d(); } } e(); }"));
+        assertEquals(
+                "1    START  -> 1 *** Statements nested deeper than 3 levels were not analysed. ***\n" +
+                        "1    CHOICE -> 1 or 1 (cond: 1:16)\n" +
+                        "1    STEP   -> end\n" +
+                        "1    STEP   -> 1 *** Not analysed, because the analysis budget was exceeded. ***\n",
+                new DebugOutput().print(start));
+        assertEquals("Not analysed, because the analysis budget was exceeded.", start.getNext().getMayBranchTo().getErrors().head());
+        assertEquals("Statements nested deeper than 3 levels were not analysed.", start.getErrors().head());
+    }
+
+    @Test
+    void reanalyseSplicesTheEditedStatement() {
+        MethodDeclaration method = StaticJavaParser.parseMethodDeclaration(
+                "void a() { b(); while (c) { d(); e(); } f(); }");
+        ControlFlowAnalyser analyser = new ControlFlowAnalyser();
+        Flow start = analyser.analyse(method);
+        Flow before = start.getNext();
+        Flow loop = before.getNext();
+        Flow after = loop.getNext();
+        BlockStmt body = method.findFirst(WhileStmt.class).get().getBody().asBlockStmt();
+        body.getStatements().set(0, StaticJavaParser.parseStatement("if (g) { h(); } else { for (;;) { break; } }"));
+
+        assertSame(start, analyser.reanalyse(start, body.getStatement(0)));
+        assertSame(before, start.getNext());
+        assertSame(loop, before.getNext());
+        assertSame(after, loop.getNext());
+        assertEquals(new DebugOutput().print(analyser.analyse(method)), new DebugOutput().print(start));
+        assertEquals(start.getIndex().size(), FlowIndex.of(start).size());
+        assertEquals(9, start.getIndex().size());
+    }
+
+    @Test
+    void reanalyseAnalysesEverythingWhenTheEditJumpsOut() {
+        MethodDeclaration method = StaticJavaParser.parseMethodDeclaration(
+                "void a() { x: while (b) { c(); while (d) { e(); } } f(); }");
+        ControlFlowAnalyser analyser = new ControlFlowAnalyser();
+        Flow start = analyser.analyse(method);
+        BlockStmt innerBody = method.findAll(WhileStmt.class).get(1).getBody().asBlockStmt();
+        innerBody.addStatement("continue x;");
+        Flow splicedStart = analyser.reanalyse(start, innerBody);
+        assertSame(start, splicedStart);
+        assertEquals(new DebugOutput().print(analyser.analyse(method)), new DebugOutput().print(splicedStart));
+
+        innerBody.addStatement("return;");
+        Flow newStart = analyser.reanalyse(start, innerBody);
+        assertNotSame(start, newStart);
+        assertEquals(new DebugOutput().print(analyser.analyse(method)), new DebugOutput().print(newStart));
+    }
+
+    @Test
+    void reanalyseReportsTheErrorsOfAFullAnalysis() {
+        assertReanalysedLikeAFullAnalysis(new ControlFlowAnalyser().setFoldConstantConditions(true),
+                "void a() {\n b();\n if (c) {\n  if (false) {\n   d();\n  }\n }\n}", "{ g(); }");
+        assertReanalysedLikeAFullAnalysis(new ControlFlowAnalyser().setFoldConstantConditions(true),
+                "void a() {\n b();\n if (c) {\n  e();\n }\n}", "{ if (false) { f(); } }");
+        assertReanalysedLikeAFullAnalysis(new ControlFlowAnalyser().setMaxFlows(4),
+                "void a() {\n b();\n if (c) {\n  e();\n }\n}", "{ f(); g(); h(); }");
+    }
+
+    /**
+     * Replaces the then statement of the first if statement in method, and compares reanalysing with analysing.
+     */
+    private static void assertReanalysedLikeAFullAnalysis(ControlFlowAnalyser analyser, String method, String thenStmt) {
+        MethodDeclaration declaration = StaticJavaParser.parseMethodDeclaration(method);
+        Flow start = analyser.analyse(declaration);
+        IfStmt ifStmt = declaration.findFirst(IfStmt.class).get();
+        ifStmt.setThenStmt(StaticJavaParser.parseStatement(thenStmt));
+        Flow reanalysed = analyser.reanalyse(start, ifStmt.getThenStmt());
+        assertEquals(new DebugOutput().print(analyser.analyse(declaration)), new DebugOutput().print(reanalysed));
+    }
+
     private String dumpMultipleDebugFlow(ParseResult<CompilationUnit> result) {
+        return dumpMultipleDebugFlow(result, new ControlFlowAnalyser());
+    }
+
+    private String dumpMultipleDebugFlow(ParseResult<CompilationUnit> result, ControlFlowAnalyser analyser) {
         if (!result.isSuccessful()) {
             return result.toString();
         }
-        CompilationUnitFlows flows = new ControlFlowAnalyser().analyse(result.getResult().get());
+        CompilationUnitFlows flows = analyser.analyse(result.getResult().get());
         DebugOutput debugOutput = new DebugOutput();
         return
                 flows.getConstructorFlows().filter(Objects::nonNull).map(debugOutput::print).mkString("======\n") +
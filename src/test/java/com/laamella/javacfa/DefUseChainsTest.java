@@ -0,0 +1,88 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefUseChainsTest {
+    private final Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+            "int a(int limit) {\n" +
+                    "    int total = 0;\n" +
+                    "    for (int i = 0; i < limit; i++) {\n" +
+                    "        if (i > 3) {\n" +
+                    "            total = i;\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "    return total;\n" +
+                    "}"));
+    private final DefUseChains chains = DefUseChains.of(start);
+
+    @Test
+    void definitionsLookThroughPhiFunctions() {
+        assertEquals(List.of(2, 5), lines(chains.getDefinitions(flowAt(8), "total")));
+        assertEquals(List.of(3, 3), lines(chains.getDefinitions(flowAt(4), "i")));
+        assertEquals(List.of(1), lines(chains.getDefinitions(flowAt(3, Flow.Type.CHOICE), "limit")));
+    }
+
+    @Test
+    void usesAreTheInverse() {
+        assertEquals(List.of(8), lines(chains.getUses(flowAt(2), "total")));
+        assertEquals(List.of(8), lines(chains.getUses(flowAt(5), "total")));
+        assertTrue(chains.getUses(flowAt(8), "total").isEmpty());
+    }
+
+    @Test
+    void unknownVariablesHaveNoChains() {
+        assertTrue(chains.getDefinitions(flowAt(8), "unknown").isEmpty());
+        assertTrue(chains.getUses(flowAt(2), "limit").isEmpty());
+    }
+
+    @Test
+    void foldedConditionsDoNotRepeatTheAccessesInTheirBody() {
+        Flow folded = new ControlFlowAnalyser().setFoldConstantConditions(true).analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a(int b) {\n" +
+                        "    if (true) {\n" +
+                        "        c(b);\n" +
+                        "    }\n" +
+                        "}"));
+        DefUseChains foldedChains = DefUseChains.of(folded);
+        assertEquals(List.of(3), lines(foldedChains.getUses(folded, "b")));
+    }
+
+    @Test
+    void variablesWithTheSameNameInOtherScopesAreNotMixedUp() {
+        Flow loops = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a(int n) {\n" +
+                        "    for (int i = 0; i < n; i++) {\n" +
+                        "        b(i);\n" +
+                        "    }\n" +
+                        "    for (int i = n; i > 0; i--) {\n" +
+                        "        c(i);\n" +
+                        "    }\n" +
+                        "}"));
+        DefUseChains loopChains = DefUseChains.of(loops);
+        Flow secondBody = new Visitor(loops).map(flow -> flow)
+                .find(flow -> flow.getNode().getRange().get().begin.line == 6)
+                .get();
+        assertEquals(List.of(5, 5), lines(loopChains.getDefinitions(secondBody, "i")));
+    }
+
+    private Flow flowAt(int line) {
+        return new Visitor(start).map(flow -> flow)
+                .find(flow -> flow.getNode().getRange().get().begin.line == line)
+                .get();
+    }
+
+    private Flow flowAt(int line, Flow.Type type) {
+        return new Visitor(start).map(flow -> flow)
+                .find(flow -> flow.getNode().getRange().get().begin.line == line && flow.getType() == type)
+                .get();
+    }
+
+    private static List<Integer> lines(List<Flow> flows) {
+        return flows.map(flow -> flow.getNode().getRange().get().begin.line);
+    }
+}
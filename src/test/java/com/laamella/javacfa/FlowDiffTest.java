@@ -0,0 +1,69 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowDiffTest {
+    private Flow analyse(String method) {
+        return new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(method));
+    }
+
+    @Test
+    void movedCodeHasNoDifferences() {
+        FlowDiff diff = FlowDiff.between(
+                analyse("void a() { x = 1; if (x > 0) { y(); } return; }"),
+                analyse("\n\n\nvoid a() {\n x = 1;\n if (x > 0) {\n  y();\n }\n return;\n}"));
+        assertTrue(diff.isEmpty(), diff::toString);
+    }
+
+    @Test
+    void insertedStatement() {
+        FlowDiff diff = FlowDiff.between(
+                analyse("void a() {\n x = 1;\n y = 2;\n}"),
+                analyse("void a() {\n x = 1;\n z = 3;\n y = 2;\n}"));
+        assertEquals("+ 3 STEP -> 4 STEP\n~ 2 STEP -> 3 STEP => 3 STEP\n", diff.toString());
+        assertEquals(1, diff.getAddedFlows().size());
+        assertTrue(diff.getRemovedFlows().isEmpty());
+    }
+
+    @Test
+    void editedStatementIsMatchedByKind() {
+        FlowDiff diff = FlowDiff.between(
+                analyse("void a() {\n x = 1;\n y = 2;\n}"),
+                analyse("void a() {\n x = 1;\n y = 3;\n}"));
+        assertTrue(diff.isEmpty(), diff::toString);
+    }
+
+    @Test
+    void redirectedBreak() {
+        FlowDiff diff = FlowDiff.between(
+                analyse("void a() {\n while (b) {\n  if (c) {\n   break;\n  }\n  d();\n }\n e();\n}"),
+                analyse("void a() {\n while (b) {\n  if (c) {\n   return;\n  }\n  d();\n }\n e();\n}"));
+        assertEquals("- 4 BREAK -> 8 STEP\n~ 3 CHOICE or 4 BREAK => 4 RETURN\n", diff.toString());
+        assertEquals(1, diff.getAddedFlows().size());
+        assertEquals(1, diff.getRemovedFlows().size());
+    }
+
+    @Test
+    void foldedLoopIsMatchedByItsCondition() {
+        ControlFlowAnalyser folding = new ControlFlowAnalyser().setFoldConstantConditions(true);
+        FlowDiff diff = FlowDiff.between(
+                folding.analyse(StaticJavaParser.parseMethodDeclaration("void a() {\n do {\n  x = 1;\n } while (false);\n e();\n}")),
+                folding.analyse(StaticJavaParser.parseMethodDeclaration("void a() {\n do {\n  x = 2;\n  w();\n } while (false);\n e();\n}")));
+        assertEquals("+ 4 STEP -> 2 STEP\n~ 3 STEP -> 2 STEP => 4 STEP\n", diff.toString());
+        assertTrue(diff.getRemovedFlows().isEmpty());
+    }
+
+    @Test
+    void statementsThatWereNotAnalysedAreMatchedByPosition() {
+        ControlFlowAnalyser budget = new ControlFlowAnalyser().setMaxFlows(1);
+        Flow before = budget.analyse(StaticJavaParser.parseMethodDeclaration("void a() {\n x = 1;\n synchronized (l) {\n  y = 2;\n }\n z = 3;\n}"));
+        Flow after = budget.analyse(StaticJavaParser.parseMethodDeclaration("void a() {\n x = 1;\n synchronized (l) {\n  y = 3;\n }\n z = 3;\n}"));
+        assertEquals(List.of("Not analysed, because the analysis budget was exceeded."), before.getNext().getNext().getErrors());
+        FlowDiff diff = FlowDiff.between(before, after);
+        assertTrue(diff.isEmpty(), diff::toString);
+    }
+}
@@ -0,0 +1,83 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowIndexTest {
+    @Test
+    void analyserNumbersFlowsInReversePostorder() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { c(); } d(); }"));
+        FlowIndex index = start.getIndex();
+        assertSame(index, FlowIndex.of(start));
+        assertEquals(4, index.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(i, index.get(i).getId());
+            assertEquals(i, index.indexOf(index.get(i)));
+        }
+        Flow loop = start.getNext();
+        assertEquals(1, loop.getId());
+        assertEquals(NONE, index.indexOf(new Flow(null, Flow.Type.STEP, null)));
+    }
+
+    @Test
+    void predecessorsAreTheReverseEdges() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { c(); } d(); }"));
+        FlowIndex index = start.getIndex();
+        int loop = start.getNext().getId();
+        int body = start.getNext().getMayBranchTo().getId();
+        assertEquals(0, index.getPredecessorCount(0));
+        assertEquals(2, index.getPredecessorCount(loop));
+        assertEquals(0, index.getPredecessor(loop, 0));
+        assertEquals(body, index.getPredecessor(loop, 1));
+        assertEquals(1, index.getPredecessorCount(body));
+    }
+
+    @Test
+    void graphsNotMadeByTheAnalyserAreIndexedToo() {
+        Flow end = new Flow(null, Flow.Type.RETURN, null);
+        Flow choice = new Flow(null, Flow.Type.CHOICE, end).setMayBranchTo(end);
+        Flow start = new Flow(null, Flow.Type.START, choice);
+        FlowIndex index = FlowIndex.of(start);
+        assertNull(start.getIndex());
+        assertEquals(NONE, end.getId());
+        assertEquals(2, index.indexOf(end));
+        assertEquals(2, index.getPredecessorCount(2));
+        assertEquals(1, index.getPredecessor(2, 0));
+        assertEquals(1, index.getPredecessor(2, 1));
+    }
+
+    @Test
+    void changedGraphIsIndexedAgain() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { c(); } d(); }"));
+        FlowIndex index = start.getIndex();
+        Flow loop = start.getNext();
+        Flow after = loop.getNext();
+        loop.setMayBranchTo(null);
+        assertEquals(NONE, loop.getId());
+        FlowIndex changed = FlowIndex.of(start);
+        assertNotSame(index, changed);
+        assertSame(changed, start.getIndex());
+        assertEquals(3, changed.size());
+        assertEquals(1, changed.getPredecessorCount(after.getId()));
+        assertEquals(1, loop.getId());
+        assertSame(changed, FlowIndex.of(start));
+    }
+
+    @Test
+    void streamsFlowsInIndexOrder() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { c(); } d(); }"));
+        FlowIndex index = start.getIndex();
+        assertEquals(index.size(), index.stream().count());
+        assertEquals(Arrays.asList(0, 1, 2, 3), index.parallelStream().map(Flow::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowShapeTest {
+    private final CompilationUnit compilationUnit = StaticJavaParser.parse(
+            "class X {\n" +
+                    "    int getA() { return a; }\n" +
+                    "    int getB() {\n" +
+                    "        return b;\n" +
+                    "    }\n" +
+                    "    void loop() { while (a > 0) { a--; } }\n" +
+                    "    void otherLoop() { while (b > 0) b--; }\n" +
+                    "}");
+    private final CompilationUnitFlows flows = new ControlFlowAnalyser().analyse(compilationUnit);
+
+    @Test
+    void sameControlFlowGivesEqualShapes() {
+        FlowShape getA = FlowShape.of(flows.getMethodFlows().get(0));
+        FlowShape getB = FlowShape.of(flows.getMethodFlows().get(1));
+        assertEquals(getA, getB);
+        assertEquals(getA.getHash(), getB.getHash());
+        assertEquals("0 START -> 1\n1 RETURN -> -1\n", getA.toString());
+
+        assertEquals(FlowShape.of(flows.getMethodFlows().get(2)), FlowShape.of(flows.getMethodFlows().get(3)));
+    }
+
+    @Test
+    void differentControlFlowGivesDifferentShapes() {
+        FlowShape getter = FlowShape.of(flows.getMethodFlows().get(0));
+        FlowShape loop = FlowShape.of(flows.getMethodFlows().get(2));
+        assertNotEquals(getter, loop);
+        assertNotEquals(getter.getHash(), loop.getHash());
+    }
+
+    @Test
+    void internerSharesShapes() {
+        FlowShapeInterner interner = new FlowShapeInterner();
+        FlowShape getA = interner.intern(flows.getMethodFlows().get(0));
+        FlowShape getB = interner.intern(flows.getMethodFlows().get(1));
+        assertSame(getA, getB);
+        interner.intern(flows.getMethodFlows().get(2));
+        assertEquals(2, interner.size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.Node;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowSinkTest {
+    private static final String CODE = "void a() {\n" +
+            "    outer: for (int i = 0; i < 3; i++) {\n" +
+            "        try {\n" +
+            "            if (b()) continue outer;\n" +
+            "            c();\n" +
+            "        } finally {\n" +
+            "            d();\n" +
+            "        }\n" +
+            "    }\n" +
+            "}";
+    private static final String FINALLY_WITH_ERROR = "void a() { try { b(); } finally { if (c) throw new X(); } }";
+
+    /**
+     * Checks the order of the events while counting them.
+     */
+    private static class CountingSink implements FlowSink {
+        int flows = 0;
+        int edges = 0;
+        int errors = 0;
+        int start = NONE;
+
+        @Override
+        public void flow(int flow, Node node, Flow.Type type) {
+            assertEquals(flows, flow);
+            flows++;
+        }
+
+        @Override
+        public void next(int flow, int to) {
+            edge(flow, to);
+        }
+
+        @Override
+        public void mayBranchTo(int flow, int to) {
+            edge(flow, to);
+        }
+
+        private void edge(int flow, int to) {
+            assertTrue(flow < flows);
+            assertTrue(to >= 0 && to < flows);
+            edges++;
+        }
+
+        @Override
+        public void error(int flow, String message) {
+            assertTrue(flow >= 0 && flow < flows);
+            errors++;
+        }
+
+        @Override
+        public void end(int start) {
+            this.start = start;
+        }
+    }
+
+    @Test
+    void eventsDescribeTheGraph() {
+        for (String code : new String[]{CODE, FINALLY_WITH_ERROR}) {
+            CountingSink sink = new CountingSink();
+            new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(code), sink);
+            Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(code));
+            assertEquals(sink.flows - 1, sink.start);
+            // Copies of the finally block for jumps that don't happen are not made.
+            assertEquals(start.getIndex().size(), sink.flows, code);
+            assertEquals(start.getAllErrors().values().map(List::size).sum().intValue(), sink.errors, code);
+            assertEquals(Flow.Type.START, start.getType());
+        }
+        CountingSink sink = new CountingSink();
+        new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(FINALLY_WITH_ERROR), sink);
+        assertEquals(4, sink.flows);
+        assertEquals(1, sink.errors);
+    }
+
+    @Test
+    void codeWithoutFlowsEndsWithoutStart() {
+        CountingSink sink = new CountingSink();
+        new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration("abstract void a();"), sink);
+        assertEquals(NONE, sink.start);
+        assertEquals(0, sink.flows);
+    }
+
+    @Test
+    void graphSinkCanBeReused() {
+        FlowGraphSink sink = new FlowGraphSink();
+        ControlFlowAnalyser analyser = new ControlFlowAnalyser();
+        analyser.analyse(StaticJavaParser.parseMethodDeclaration(CODE), sink);
+        Flow first = sink.getStart();
+        analyser.analyse(StaticJavaParser.parseMethodDeclaration("void a() { b(); }"), sink);
+        assertNotSame(first, sink.getStart());
+        assertEquals(2, sink.getStart().getIndex().size());
+        assertEquals(new DebugOutput().print(new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(CODE))),
+                new DebugOutput().print(first));
+    }
+}
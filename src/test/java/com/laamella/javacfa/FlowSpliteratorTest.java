@@ -0,0 +1,50 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowSpliteratorTest {
+    private static final CompilationUnitFlows FLOWS = new ControlFlowAnalyser().analyse(StaticJavaParser.parse(
+            "abstract class X {\n" +
+                    "    X() { a(); }\n" +
+                    "    abstract void b();\n" +
+                    "    void c() { while (d) { e(); } f(); }\n" +
+                    "    void g() { h(); }\n" +
+                    "}"));
+
+    @Test
+    void streamsAllFlowsOfAllGraphsInOrder() {
+        List<Flow> expected = FLOWS.getConstructorFlows().appendAll(FLOWS.getMethodFlows())
+                .filter(start -> start != null)
+                .flatMap(start -> List.ofAll(FlowIndex.of(start).stream()));
+        assertEquals(8, expected.size());
+        assertEquals(expected.toJavaList(), FLOWS.stream().collect(Collectors.toList()));
+        assertEquals(expected.toJavaList(), FLOWS.parallelStream().collect(Collectors.toList()));
+        assertEquals(16, CompilationUnitFlows.flows(List.of(FLOWS, FLOWS), true).count());
+        assertEquals(8, CompilationUnitFlows.flows(List.of(FLOWS, FLOWS), false).distinct().count());
+        assertEquals(8, CompilationUnitFlows.flows(List.of(FLOWS, FLOWS), true).distinct().count());
+    }
+
+    @Test
+    void splitsInsideAndBetweenGraphs() {
+        Spliterator<Flow> second = FLOWS.stream().spliterator();
+        assertEquals(8, second.getExactSizeIfKnown());
+        Spliterator<Flow> first = second.trySplit();
+        assertEquals(4, first.getExactSizeIfKnown());
+        assertEquals(4, second.getExactSizeIfKnown());
+        // The constructor has two flows, so the method with the loop is split over both halves.
+        Flow[] flow = new Flow[1];
+        assertTrue(second.tryAdvance(f -> flow[0] = f));
+        assertEquals(2, flow[0].getId());
+        Spliterator<Flow> rest = second.trySplit();
+        assertEquals(1, rest.getExactSizeIfKnown());
+        assertEquals(2, second.getExactSizeIfKnown());
+        assertTrue(first.hasCharacteristics(Spliterator.SUBSIZED));
+    }
+}
@@ -0,0 +1,69 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import com.laamella.snippets_test_junit5.BasePath;
+import com.laamella.snippets_test_junit5.SnippetFileFormat;
+import com.laamella.snippets_test_junit5.SnippetTestFactory;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static com.laamella.snippets_test_junit5.TestCaseFilenameFilter.allFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrequencyEstimatorTest {
+    private final BasePath basePath = BasePath.fromMavenModuleRoot(FrequencyEstimatorTest.class).inSrcTestResources();
+
+    @TestFactory
+    Stream<DynamicTest> frequencies() throws IOException {
+        return new SnippetTestFactory<>(
+                new SnippetFileFormat("/*", "*/\n", "\n/* expected:\n", "\n---\n", "*/"),
+                basePath.inSubDirectory("frequencies"),
+                allFiles(),
+                StaticJavaParser::parseMethodDeclaration,
+                (testCaseText, testCase) -> new FrequencyEstimator().estimate(new ControlFlowAnalyser().analyse(testCase)).toString()
+        ).stream();
+    }
+
+    @Test
+    void branchProbabilityAndLoopMultiplierCanBeChosen() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { if (c) { d(); } } }"));
+        FrequencyEstimator.Frequencies frequencies = new FrequencyEstimator()
+                .setBranchProbability(0.25)
+                .setLoopMultiplier(4)
+                .estimate(start);
+        Flow loop = start.getNext();
+        Flow choice = loop.getMayBranchTo();
+        assertEquals(4, frequencies.getFrequency(loop));
+        assertEquals(4, frequencies.getFrequency(choice));
+        assertEquals(1, frequencies.getFrequency(choice.getMayBranchTo()));
+    }
+
+    @Test
+    void hotSpotsAreRankedOverTheWholeCompilationUnit() {
+        CompilationUnitFlows flows = new ControlFlowAnalyser().analyse(StaticJavaParser.parse(
+                "class X {\n" +
+                        "    void a() {\n" +
+                        "        b();\n" +
+                        "        for (;;) {\n" +
+                        "            c();\n" +
+                        "        }\n" +
+                        "    }\n" +
+                        "    void d() {\n" +
+                        "        while (e()) {\n" +
+                        "            while (f()) {\n" +
+                        "                g();\n" +
+                        "            }\n" +
+                        "        }\n" +
+                        "    }\n" +
+                        "}"));
+        List<FrequencyEstimator.HotSpot> hotSpots = new FrequencyEstimator().getHotSpots(flows, 3);
+        assertEquals("10 CHOICE 100, 11 STEP 100, 4 CHOICE 10", hotSpots.mkString(", "));
+        assertEquals(flows.getMethodFlows().get(1), hotSpots.get(0).getStart());
+    }
+}
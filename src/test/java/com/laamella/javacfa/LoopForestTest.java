@@ -0,0 +1,49 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import com.laamella.snippets_test_junit5.BasePath;
+import com.laamella.snippets_test_junit5.SnippetFileFormat;
+import com.laamella.snippets_test_junit5.SnippetTestFactory;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static com.laamella.javacfa.LoopForest.EdgeType.*;
+import static com.laamella.snippets_test_junit5.TestCaseFilenameFilter.allFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoopForestTest {
+    private final BasePath basePath = BasePath.fromMavenModuleRoot(LoopForestTest.class).inSrcTestResources();
+
+    @TestFactory
+    Stream<DynamicTest> loops() throws IOException {
+        return new SnippetTestFactory<>(
+                new SnippetFileFormat("/*", "*/\n", "\n/* expected:\n", "\n---\n", "*/"),
+                basePath.inSubDirectory("loops"),
+                allFiles(),
+                StaticJavaParser::parseMethodDeclaration,
+                (testCaseText, testCase) -> LoopForest.of(new ControlFlowAnalyser().analyse(testCase)).toString()
+        ).stream();
+    }
+
+    @Test
+    void edgeTypes() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { if (c) { d(); } } }"));
+        LoopForest forest = LoopForest.of(start);
+        Flow loop = start.getNext();
+        Flow choice = loop.getMayBranchTo();
+        Flow step = choice.getMayBranchTo();
+        assertEquals(TREE, forest.getNextEdgeType(start));
+        assertEquals(TREE, forest.getMayBranchToEdgeType(loop));
+        assertEquals(BACK, forest.getNextEdgeType(choice));
+        assertEquals(BACK, forest.getNextEdgeType(step));
+        assertNull(forest.getNextEdgeType(loop));
+        assertEquals(1, forest.getDepth(step));
+        assertEquals(0, forest.getDepth(start));
+    }
+}
@@ -0,0 +1,65 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static com.laamella.javacfa.Flow.Type.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapFlowStoreTest {
+    private final CompilationUnitFlows flows = new ControlFlowAnalyser().analyse(StaticJavaParser.parse(
+            "abstract class X {\n" +
+                    "    X() { a = 1; }\n" +
+                    "    abstract void abs();\n" +
+                    "    void loop() {\n" +
+                    "        while (a > 0) {\n" +
+                    "            a--;\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "}"));
+
+    @Test
+    void storesGraphsInDirectBuffers() {
+        // A tiny chunk size makes every graph go into its own chunk.
+        OffHeapFlowStore store = OffHeapFlowStore.inMemory(40);
+        long[] handles = store.append(flows);
+
+        assertEquals(3, handles.length);
+        assertEquals(OffHeapFlowStore.NO_GRAPH, handles[1]);
+        assertEquals(2, store.getGraphCount());
+        assertEquals(handles[2], store.getGraph(1));
+        assertLoop(store, handles[2]);
+
+        long constructor = handles[0];
+        assertEquals(2, store.getFlowCount(constructor));
+        assertEquals(STEP, store.getType(constructor, 1));
+        assertEquals(FlowIndex.NONE, store.getNext(constructor, 1));
+    }
+
+    @Test
+    void storesGraphsInMappedFile(@TempDir Path tempDir) throws IOException {
+        try (OffHeapFlowStore store = OffHeapFlowStore.mapped(tempDir.resolve("flows"), 1024)) {
+            for (int i = 0; i < 100; i++) {
+                store.append(flows);
+            }
+            assertEquals(200, store.getGraphCount());
+            assertLoop(store, store.getGraph(199));
+        }
+    }
+
+    private void assertLoop(OffHeapFlowStore store, long loop) {
+        assertEquals(3, store.getFlowCount(loop));
+        assertEquals(START, store.getType(loop, 0));
+        assertEquals(1, store.getNext(loop, 0));
+        assertEquals(CHOICE, store.getType(loop, 1));
+        assertEquals(5, store.getLine(loop, 1));
+        assertEquals(FlowIndex.NONE, store.getNext(loop, 1));
+        assertEquals(2, store.getMayBranchTo(loop, 1));
+        assertEquals(STEP, store.getType(loop, 2));
+        assertEquals(1, store.getNext(loop, 2));
+    }
+}
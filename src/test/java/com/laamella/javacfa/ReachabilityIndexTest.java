@@ -0,0 +1,75 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityIndexTest {
+    private static final String[] METHODS = {
+            "void a() { b(); c(); return; }",
+            "void a() { while (b) { if (c) { d(); continue; } e(); } f(); }",
+            "void a() { x: for (int i = 0; i < 3; i++) { for (;;) { if (b) continue x; if (c) break x; } } d(); }",
+            "void a() { try { b(); if (c) throw new X(); } catch (X e) { d(); } finally { e(); } f(); }",
+            "void a() { do { while (true); } while (b); }",
+            "void a(int b) { switch (b) { case 1: c(); case 2: d(); break; default: e(); } for (String s : f) { g(); } }"
+    };
+
+    @Test
+    void answersLikeASearch() {
+        for (String method : METHODS) {
+            FlowIndex index = FlowIndex.of(new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(method)));
+            ReachabilityIndex withClosure = ReachabilityIndex.of(index);
+            ReachabilityIndex withoutClosure = ReachabilityIndex.of(index, 0);
+            assertTrue(withClosure.hasClosure());
+            assertFalse(withoutClosure.hasClosure());
+            for (int from = 0; from < index.size(); from++) {
+                for (int to = 0; to < index.size(); to++) {
+                    boolean expected = search(index, from, to);
+                    assertEquals(expected, withClosure.canReach(from, to), method + " " + from + " -> " + to);
+                    assertEquals(expected, withoutClosure.canReach(from, to), method + " " + from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    @Test
+    void loopsAreOneComponent() {
+        Flow start = new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "void a() { while (b) { c(); } d(); }"));
+        ReachabilityIndex reachability = ReachabilityIndex.of(start);
+        Flow loop = start.getNext();
+        Flow body = loop.getMayBranchTo();
+        Flow after = loop.getNext();
+        assertEquals(3, reachability.getComponentCount());
+        assertEquals(reachability.getComponent(loop.getId()), reachability.getComponent(body.getId()));
+        assertTrue(reachability.canReach(body, loop));
+        assertTrue(reachability.canReach(loop, loop));
+        assertTrue(reachability.canReach(body, after));
+        assertFalse(reachability.canReach(after, body));
+        assertFalse(reachability.canReach(start, start));
+    }
+
+    private static boolean search(FlowIndex index, int from, int to) {
+        boolean[] seen = new boolean[index.size()];
+        Deque<Integer> todo = new ArrayDeque<>();
+        todo.push(from);
+        while (!todo.isEmpty()) {
+            int flow = todo.pop();
+            for (int successor : new int[]{index.getNext(flow), index.getMayBranchTo(flow)}) {
+                if (successor == to) {
+                    return true;
+                }
+                if (successor != NONE && !seen[successor]) {
+                    seen[successor] = true;
+                    todo.push(successor);
+                }
+            }
+        }
+        return false;
+    }
+}
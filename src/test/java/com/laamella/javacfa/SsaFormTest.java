@@ -0,0 +1,68 @@
+package com.laamella.javacfa;
+
+import com.github.javaparser.StaticJavaParser;
+import com.laamella.snippets_test_junit5.BasePath;
+import com.laamella.snippets_test_junit5.SnippetFileFormat;
+import com.laamella.snippets_test_junit5.SnippetTestFactory;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static com.laamella.javacfa.FlowIndex.NONE;
+import static com.laamella.snippets_test_junit5.TestCaseFilenameFilter.allFiles;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SsaFormTest {
+    private final BasePath basePath = BasePath.fromMavenModuleRoot(SsaFormTest.class).inSrcTestResources();
+
+    @TestFactory
+    Stream<DynamicTest> ssa() throws IOException {
+        return new SnippetTestFactory<>(
+                new SnippetFileFormat("/*", "*/\n", "\n/* expected:\n", "\n---\n", "*/"),
+                basePath.inSubDirectory("ssa"),
+                allFiles(),
+                StaticJavaParser::parseMethodDeclaration,
+                (testCaseText, testCase) -> SsaForm.of(new ControlFlowAnalyser().setThrowResolution(ThrowResolution.SYNTACTIC).analyse(testCase)).toString()
+        ).stream();
+    }
+
+    @Test
+    void phiJoinsBothBranches() {
+        SsaForm ssa = SsaForm.of(new ControlFlowAnalyser().analyse(StaticJavaParser.parseMethodDeclaration(
+                "int a(boolean b) { int c = 1; if (b) { c = 2; } return c; }")));
+        FlowIndex index = ssa.getIndex();
+        int c = ssa.getVariables().indexOf("c");
+        assertEquals(3, ssa.getVersionCount(c));
+        assertTrue(ssa.isPhi(c, 3));
+        int join = ssa.getDefinition(c, 3);
+        assertEquals(Flow.Type.RETURN, index.get(join).getType());
+        assertEquals(2, ssa.getIndex().getPredecessorCount(join));
+        assertEquals(c, ssa.getAccessVariable(join, 0));
+        assertEquals(3, ssa.getAccessVersion(join, 0));
+        assertFalse(ssa.isWrite(join, 0));
+        assertEquals(NONE, ssa.getImmediateDominator(0));
+    }
+
+    @Test
+    void foldedConditionsOnlyReadTheirCondition() {
+        Flow start = new ControlFlowAnalyser().setFoldConstantConditions(true).analyse(StaticJavaParser.parseMethodDeclaration(
+                "int a(int b) {\n" +
+                        "    int c = 0;\n" +
+                        "    while (true) {\n" +
+                        "        c = c + b;\n" +
+                        "        if (c > 9) {\n" +
+                        "            return c;\n" +
+                        "        }\n" +
+                        "    }\n" +
+                        "}"));
+        assertEquals("1 START: def b1\n" +
+                "2 STEP: def c1\n" +
+                "3 STEP: c2 = phi(c1, c3)\n" +
+                "4 STEP: use c2, use b1, def c3\n" +
+                "5 CHOICE: use c3\n" +
+                "6 RETURN: use c3\n", SsaForm.of(start).toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.laamella.javacfa.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesResults() throws IOException {
+        AnalysisCache cache = new AnalysisCache(directory, 1_000_000, "settings");
+        String key = cache.key("X.java", "class X {}".getBytes(UTF_8));
+        assertNull(cache.get(key));
+
+        cache.put(key, new FileResult("output", 3, false));
+        FileResult result = new AnalysisCache(directory, 1_000_000, "settings").get(key);
+        assertEquals("output", result.getText());
+        assertEquals(3, result.getMethods());
+        assertFalse(result.isFailed());
+    }
+
+    @Test
+    void keyDependsOnEverything() throws IOException {
+        AnalysisCache cache = new AnalysisCache(directory, 1_000_000, "settings");
+        AnalysisCache otherSettings = new AnalysisCache(directory, 1_000_000, "other settings");
+        byte[] content = "class X {}".getBytes(UTF_8);
+        assertEquals(cache.key("X.java", content), cache.key("X.java", content.clone()));
+        assertNotEquals(cache.key("X.java", content), cache.key("Y.java", content));
+        assertNotEquals(cache.key("X.java", content), cache.key("X.java", "class X { }".getBytes(UTF_8)));
+        assertNotEquals(cache.key("X.java", content), otherSettings.key("X.java", content));
+    }
+
+    @Test
+    void replacingAnEntryCountsItsSizeOnce() throws IOException {
+        AnalysisCache cache = new AnalysisCache(directory, 1_000_000, "settings");
+        String key = cache.key("X.java", new byte[0]);
+        cache.put(key, new FileResult("output", 1, false));
+        long size = cache.getSize();
+        cache.put(key, new FileResult("output", 1, false));
+        assertEquals(size, cache.getSize());
+        assertEquals(size, new AnalysisCache(directory, 1_000_000, "settings").getSize());
+    }
+
+    @Test
+    void evictsWhenFull() throws IOException {
+        AnalysisCache cache = new AnalysisCache(directory, 1000, "settings");
+        for (int i = 0; i < 100; i++) {
+            cache.put(cache.key("X" + i + ".java", new byte[0]), new FileResult("output " + i, 1, false));
+        }
+        assertTrue(cache.getSize() <= 1000, "" + cache.getSize());
+        assertNotNull(cache.get(cache.key("X99.java", new byte[0])));
+    }
+}
@@ -0,0 +1,106 @@
+package com.laamella.javacfa.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DaemonTest {
+    @TempDir
+    Path sources;
+
+    private Daemon daemon;
+    private Thread server;
+    private Socket socket;
+    private BufferedReader input;
+    private Writer output;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new Daemon(Options.parse("--format", "debug", "--daemon", "0"), 0, 2);
+        server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        server.start();
+        socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+        input = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+        output = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+    }
+
+    @AfterEach
+    void stop() throws IOException, InterruptedException {
+        socket.close();
+        daemon.close();
+        server.join(5000);
+    }
+
+    private String request(String request) throws IOException {
+        output.write(request + "\n");
+        output.flush();
+        StringBuilder response = new StringBuilder();
+        for (String line = input.readLine(); !line.equals("."); line = input.readLine()) {
+            response.append(line).append("\n");
+        }
+        return response.toString();
+    }
+
+    @Test
+    void answersFromMemoryUntilTheFileChanges() throws IOException {
+        Path file = sources.resolve("X.java");
+        Files.write(file, "class X { void x() { a(); } }".getBytes(UTF_8));
+        String flows = "// " + file + " X.x()\n1    START  -> 1\n1    STEP   -> end\n";
+
+        assertEquals(flows, request("FLOWS " + file));
+        assertEquals(flows, request("FLOWS " + file));
+        // Touched but unchanged:
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        assertEquals(flows, request("FLOWS " + file));
+        assertEquals("files 1\nhits 2\nmisses 1\n", request("STATS"));
+
+        Files.write(file, "class X {\n void x() {\n  try { throw new Y(); } catch (Z e) {}\n }\n}".getBytes(UTF_8));
+        assertEquals("3: Cannot tell which catch clause catches this without the symbol solver.\n", request("ERRORS " + file));
+        assertEquals("files 1\nhits 2\nmisses 2\n", request("STATS"));
+    }
+
+    @Test
+    void forgetsTheLeastRecentlyUsedFile() throws IOException {
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = sources.resolve("X" + i + ".java");
+            Files.write(files[i], ("class X" + i + " { void x() { a(); } }").getBytes(UTF_8));
+        }
+        request("FLOWS " + files[0]);
+        request("FLOWS " + files[1]);
+        request("FLOWS " + files[0]);
+        request("FLOWS " + files[2]);
+        assertEquals("files 2\nhits 1\nmisses 3\n", request("STATS"));
+        // files[1] was forgotten, files[0] was not.
+        request("FLOWS " + files[0]);
+        request("FLOWS " + files[1]);
+        assertEquals("files 2\nhits 2\nmisses 4\n", request("STATS"));
+    }
+
+    @Test
+    void reportsProblems() throws IOException {
+        assertEquals("ERROR Unknown command: HELLO\n", request("HELLO"));
+        assertEquals("ERROR java.nio.file.NoSuchFileException: " + sources.resolve("Y.java") + "\n", request("FLOWS " + sources.resolve("Y.java")));
+        assertTrue(request("FLOWS " + sources + "/Y\u0000.java").startsWith("ERROR java.nio.file.InvalidPathException: "));
+        assertEquals("files 0\nhits 0\nmisses 0\n", request("STATS"));
+        assertEquals("OK\n", request("SHUTDOWN"));
+    }
+}
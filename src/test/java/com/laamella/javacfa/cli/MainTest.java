@@ -0,0 +1,122 @@
+package com.laamella.javacfa.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MainTest {
+    @TempDir
+    Path sources;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return Main.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Test
+    void writesJsonLinesPerMethod() throws IOException {
+        Files.createDirectories(sources.resolve("a"));
+        Files.write(sources.resolve("a/X.java"), ("class X {\n" +
+                "    X() {}\n" +
+                "    int get(int a) {\n" +
+                "        return a;\n" +
+                "    }\n" +
+                "}").getBytes(UTF_8));
+
+        assertEquals(0, run("--parsers", "2", sources.toString()));
+
+        String file = sources.resolve("a/X.java").toString().replace("\\", "\\\\");
+        assertEquals("{\"file\":\"" + file + "\",\"method\":\"X.X()\",\"line\":2,\"flows\":null}\n" +
+                "{\"file\":\"" + file + "\",\"method\":\"X.get(int)\",\"line\":3,\"flows\":[" +
+                "{\"id\":0,\"line\":3,\"type\":\"START\",\"next\":1,\"mayBranchTo\":null}," +
+                "{\"id\":1,\"line\":4,\"type\":\"RETURN\",\"next\":null,\"mayBranchTo\":null}]}\n", out.toString("UTF-8"));
+        assertTrue(err.toString("UTF-8").startsWith("1 files (0 failed"));
+    }
+
+    @Test
+    void writesDebugOutputAndReportsParseProblems() throws IOException {
+        Files.write(sources.resolve("Broken.java"), "class Broken {".getBytes(UTF_8));
+        Files.write(sources.resolve("Y.java"), "class Y { void y() { a(); } }".getBytes(UTF_8));
+        Path output = sources.resolve("out.txt");
+
+        assertEquals(1, run("--format", "debug", "--output", output.toString(), "--quiet", sources.toString()));
+
+        String result = new String(Files.readAllBytes(output), UTF_8);
+        assertTrue(result.contains("// " + sources.resolve("Y.java") + " Y.y()\n1    START  -> 1\n1    STEP   -> end\n"), result);
+        assertTrue(result.contains("// " + sources.resolve("Broken.java") + "\n"), result);
+        assertEquals("", err.toString("UTF-8"));
+    }
+
+    @Test
+    void reusesCachedResults(@TempDir Path cache) throws IOException {
+        Files.write(sources.resolve("Y.java"), "class Y { void y() { a(); } }".getBytes(UTF_8));
+        Files.write(sources.resolve("Z.java"), "class Z { void z() { a(); } }".getBytes(UTF_8));
+
+        assertEquals(0, run("--cache", cache.toString(), sources.toString()));
+        String firstOutput = out.toString("UTF-8");
+        assertTrue(err.toString("UTF-8").startsWith("2 files (0 failed, 0 cached"), err::toString);
+
+        out.reset();
+        err.reset();
+        Files.write(sources.resolve("Z.java"), "class Z { void z() { b(); } }".getBytes(UTF_8));
+        assertEquals(0, run("--cache", cache.toString(), sources.toString()));
+        assertEquals(firstOutput.length(), out.toString("UTF-8").length());
+        assertTrue(err.toString("UTF-8").startsWith("2 files (0 failed, 1 cached"), err::toString);
+    }
+
+    @Test
+    void analysesResultsThatRanOutOfTimeAgain(@TempDir Path cache) throws IOException, InterruptedException {
+        Files.write(sources.resolve("Y.java"), "class Y { void y() { a(); b(); c(); } }".getBytes(UTF_8));
+        Options options = Options.parse("--cache", cache.toString(), sources.toString());
+        for (int run = 0; run < 2; run++) {
+            Statistics statistics = new Statistics();
+            StringWriter output = new StringWriter();
+            new Pipeline(options, statistics, message -> {
+            }, options.createAnalyser().setMaxMillis(0)).run(output);
+            assertTrue(output.toString().contains("Analysis stopped after 0 ms."), output::toString);
+            assertEquals(1, statistics.getFiles());
+            assertEquals(0, statistics.getCacheHits());
+        }
+    }
+
+    @Test
+    void failsWhenTheOutputCanNotBeWritten() throws IOException {
+        Files.write(sources.resolve("Y.java"), "class Y { void y() { a(); } }".getBytes(UTF_8));
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Pipeline pipeline = new Pipeline(Options.parse(sources.toString()), new Statistics(), message -> {
+        });
+        IOException e = assertThrows(IOException.class, () -> pipeline.run(failing));
+        assertEquals("Disk full", e.getMessage());
+    }
+
+    @Test
+    void rejectsWrongArguments() throws IOException {
+        assertEquals(2, run("--format", "xml", sources.toString()));
+        assertTrue(err.toString("UTF-8").startsWith("Unknown format: xml\nUsage:"));
+    }
+}
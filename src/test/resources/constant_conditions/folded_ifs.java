@@ -0,0 +1,38 @@
+class X {
+    void a() {
+        if (true) {
+            b();
+        } else {
+            c();
+        }
+        if (false) {
+            d();
+            if (false) {
+                e();
+            }
+        }
+        f();
+    }
+
+    int g() {
+        if (h()) {
+            return 1;
+        }
+        while (true) {
+            return 2;
+        }
+    }
+}
+/* expected:
+2    START  -> 3 *** Unreachable code at line 6., Unreachable code at line 9. ***
+3    STEP   -> 4
+4    STEP   -> 8
+8    STEP   -> 14
+14   STEP   -> end
+======
+17   START  -> 18
+18   CHOICE -> 21 or 19 (cond: 18:13)
+21   STEP   -> 22
+19   RETURN -> end
+22   RETURN -> end
+*/
\ No newline at end of file
@@ -0,0 +1,59 @@
+class X {
+    void a() {
+        while (true) {
+            if (b()) {
+                break;
+            }
+        }
+        c();
+    }
+
+    void d() {
+        for (;;) {
+            e();
+        }
+        f();
+        g();
+    }
+
+    void h() {
+        do {
+            i();
+        } while (true);
+        j();
+    }
+
+    void k() {
+        while ((false)) {
+            l();
+        }
+        for (int m = 0; false; m++) {
+            n();
+        }
+        do {
+            o();
+        } while (false);
+    }
+}
+/* expected:
+2    START  -> 3
+3    STEP   -> 4
+4    CHOICE -> 3 or 5 (cond: 4:17)
+5    BREAK  -> 8
+8    STEP   -> end
+======
+11   START  -> 12 *** Unreachable code at line 15. ***
+12   STEP   -> 13
+13   STEP   -> 12
+======
+19   START  -> 21 *** Unreachable code at line 23. ***
+21   STEP   -> 20
+20   STEP   -> 21
+======
+26   START  -> 27 *** Unreachable code at line 28., Unreachable code at line 31. ***
+27   STEP   -> 30
+30   FOR_IN -> 30
+30   STEP   -> 34
+34   STEP   -> 33
+33   STEP   -> end
+*/
\ No newline at end of file
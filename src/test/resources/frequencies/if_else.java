@@ -0,0 +1,17 @@
+int abc(boolean b) {
+    a();
+    if (b) {
+        c();
+    } else {
+        d();
+    }
+    return e();
+}
+/* expected:
+1 START 1
+2 STEP 1
+3 CHOICE 1
+4 STEP 0.5
+6 STEP 0.5
+8 RETURN 1
+*/
\ No newline at end of file
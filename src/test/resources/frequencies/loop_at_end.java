@@ -0,0 +1,15 @@
+void abc() {
+    do {
+        a();
+    } while (b());
+    while (c()) {
+        d();
+    }
+}
+/* expected:
+1 START 1
+3 STEP 10
+2 CHOICE 10
+5 CHOICE 10
+6 STEP 10
+*/
\ No newline at end of file
@@ -0,0 +1,22 @@
+void abc(int[] b) {
+    for (int i = 0; i < b.length; i++) {
+        while (c()) {
+            if (d()) {
+                break;
+            }
+            e();
+        }
+    }
+    f();
+}
+/* expected:
+1 START 1
+2 FOR_INITIALIZATION 1
+2 CHOICE 10
+3 CHOICE 100
+4 CHOICE 100
+5 BREAK 5
+7 STEP 50
+2 FOR_UPDATE 15
+10 STEP 1
+*/
\ No newline at end of file
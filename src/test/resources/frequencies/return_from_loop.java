@@ -0,0 +1,19 @@
+int abc(int[] b) {
+    int i = 0;
+    while (i < b.length) {
+        if (b[i] == 0) {
+            return i;
+        }
+        i++;
+    }
+    return -1;
+}
+/* expected:
+1 START 1
+2 STEP 1
+3 CHOICE 10
+4 CHOICE 10
+5 RETURN 0.5
+7 STEP 5
+9 RETURN 1
+*/
\ No newline at end of file
@@ -0,0 +1,14 @@
+void abc(int b) {
+    for (String a : b) {
+        if (a == null) {
+            return;
+        }
+        while (true) {
+            a();
+        }
+    }
+}
+/* expected:
+2 CHOICE depth 1 body: 2 3 6 7 exits: end 4
+  6 CHOICE depth 2 body: 6 7 exits: 2
+*/
\ No newline at end of file
@@ -0,0 +1,20 @@
+void abc(int b) {
+    x:
+    while (b > 0) {
+        for (int i = 0; i < b; i++) {
+            if (i == 3) {
+                continue x;
+            }
+            b--;
+        }
+        do {
+            b++;
+        } while (b < 10);
+    }
+    a();
+}
+/* expected:
+3 CHOICE depth 1 body: 3 4 4 5 6 8 4 11 10 exits: 14
+  4 CHOICE depth 2 body: 4 5 8 4 exits: 11 6
+  11 STEP depth 2 body: 11 10 exits: 3
+*/
\ No newline at end of file
@@ -0,0 +1,8 @@
+void abc(int b) {
+    if (b > 0) {
+        return;
+    }
+    a();
+}
+/* expected:
+*/
\ No newline at end of file
@@ -0,0 +1,16 @@
+int max(int a, int b) {
+    int result;
+    if (a > b) {
+        result = a;
+    } else {
+        result = b;
+    }
+    return result;
+}
+/* expected:
+1 START: def a1, def b1
+3 CHOICE: use a1, use b1
+4 STEP: use a1, def result1
+6 STEP: use b1, def result2
+8 RETURN: result3 = phi(result1, result2), use result3
+*/
\ No newline at end of file
@@ -0,0 +1,25 @@
+int parse(String text) {
+    int result = 0;
+    try {
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        result = 1;
+    } catch (IllegalArgumentException e) {
+        result = e.hashCode();
+        e = null;
+        result = result + (e == null ? 0 : 1);
+    }
+    return result;
+}
+/* expected:
+1 START: def text1
+2 STEP: def result1
+4 CHOICE: use text1
+5 THROW: def e1
+9 STEP: use e1, def result2
+10 STEP: def e2
+11 STEP: use result2, use e2, def result3
+7 STEP: def result4
+13 RETURN: result5 = phi(result3, result4), e3 = phi(e2, e0), use result5
+*/
\ No newline at end of file
@@ -0,0 +1,13 @@
+int field() {
+    {
+        int x = 1;
+        y = x;
+    }
+    x = 2;
+    this.x = 3;
+    return x;
+}
+/* expected:
+3 STEP: def x1
+4 STEP: use x1
+*/
\ No newline at end of file
@@ -0,0 +1,21 @@
+int sum(int[] values, int limit) {
+    int total = 0;
+    int i;
+    for (i = 0; i < values.length; i++) {
+        if (total > limit) {
+            break;
+        }
+        total += values[i];
+    }
+    return total;
+}
+/* expected:
+1 START: def values1, def limit1
+2 STEP: def total1
+4 FOR_INITIALIZATION: def i1
+4 CHOICE: total2 = phi(total1, total3), i2 = phi(i1, i3), use i2, use values1
+5 CHOICE: use total2, use limit1
+8 STEP: use values1, use i2, use total2, def total3
+4 FOR_UPDATE: use i2, def i3
+10 RETURN: use total2
+*/
\ No newline at end of file
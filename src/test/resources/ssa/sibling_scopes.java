@@ -0,0 +1,23 @@
+int sum(int[] values) {
+    int total = 0;
+    for (int i = 0; i < values.length; i++) {
+        total += values[i];
+    }
+    for (int i = values.length - 1; i >= 0; i--) {
+        total -= values[i];
+    }
+    return total;
+}
+/* expected:
+1 START: def values1
+2 STEP: def total1
+3 FOR_INITIALIZATION: def i1
+3 CHOICE: total2 = phi(total1, total3), i2 = phi(i1, i3), use i2, use values1
+4 STEP: use values1, use i2, use total2, def total3
+3 FOR_UPDATE: use i2, def i3
+6 FOR_INITIALIZATION: use values1, def i1
+6 CHOICE: total4 = phi(total2, total5), i2 = phi(i1, i3), use i2
+7 STEP: use values1, use i2, use total4, def total5
+6 FOR_UPDATE: use i2, def i3
+9 RETURN: use total4
+*/
\ No newline at end of file
@@ -0,0 +1,17 @@
+int signs(int a, boolean b) {
+    int c = -a;
+    boolean d = !b;
+    c = ~c + +a;
+    a++;
+    --c;
+    return a + c;
+}
+/* expected:
+1 START: def a1, def b1
+2 STEP: use a1, def c1
+3 STEP: use b1, def d1
+4 STEP: use c1, use a1, def c2
+5 STEP: use a1, def a2
+6 STEP: use c2, def c3
+7 RETURN: use a2, use c3
+*/
\ No newline at end of file
@@ -0,0 +1,42 @@
+import java.io.*;
+import com.example.Unknown;
+
+class X {
+    static class MyException extends FileNotFoundException {
+    }
+
+    void a() {
+        try {
+            if (a == 0) {
+                throw new MyException();
+            }
+            if (a == 1) {
+                throw new IllegalArgumentException();
+            }
+            if (a == 2) {
+                throw new Unknown();
+            }
+            throw new java.sql.SQLException();
+        } catch (IllegalStateException | IOException e) {
+            x = 1;
+            throw e;
+        } catch (RuntimeException e) {
+            x = 2;
+        }
+        x = 3;
+    }
+}
+/* expected:
+8    START  -> 10
+10   CHOICE -> 13 or 11 (cond: 10:17)
+13   CHOICE -> 16 or 14 (cond: 13:17)
+11   THROW  -> 21
+16   CHOICE -> 19 or 17 (cond: 16:17)
+14   THROW  -> 24
+21   STEP   -> 22
+19   THROW  -> end
+17   THROW  -> end *** Cannot tell which catch clause catches this without the symbol solver. ***
+24   STEP   -> 26
+22   THROW  -> end
+26   STEP   -> end
+*/
\ No newline at end of file
@@ -0,0 +1,42 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+class X {
+    void a() {
+        try {
+            try {
+                throw new FileNotFoundException();
+            } catch (Exception e) {
+                throw e;
+            }
+        } catch (IOException x) {
+            x = 0;
+        }
+    }
+
+    void b() {
+        try {
+            try {
+                throw new FileNotFoundException();
+            } catch (IOException e) {
+                e = new FileNotFoundException();
+                throw e;
+            }
+        } catch (IllegalStateException x) {
+            x = 0;
+        } catch (Exception x) {
+            x = 1;
+        }
+    }
+}
+/* expected:
+5    START  -> 8
+8    THROW  -> 10
+10   THROW  -> end *** Cannot tell which catch clause catches this without the symbol solver. ***
+======
+17   START  -> 20
+20   THROW  -> 22
+22   STEP   -> 23
+23   THROW  -> 28
+28   STEP   -> end
+*/
\ No newline at end of file